@@ -8,11 +8,14 @@ import java.util.Arrays;
   */
 public class Arbiter {
 
-    private int roundsCompleted;
+    private long roundsCompleted;
     private Action[] lastRound; // 0 = player 1's action, 1 = player 2's action
     private RoShamBot player1;
     private RoShamBot player2;
-    private int[] score; // score[0] = # player 1 wins, score[2] = # player 2 wins
+    private long[] score; // score[0] = # player 1 wins, score[2] = # player 2 wins
+    private LatencyHistogram latency1; // null unless timing is enabled
+    private LatencyHistogram latency2;
+    private TranscriptWriter transcript; // null unless recording
     
     /** Intializes a new match between two specified bots.
       * 
@@ -24,7 +27,25 @@ public class Arbiter {
         this.lastRound = new Action[2];
         this.player1 = player1;
         this.player2 = player2;
-        this.score = new int[3];
+        this.score = new long[3];
+    }
+    
+    /** Intializes a new seeded match between two specified bots. Each bot that
+      * implements {@link RandomizedBot} is given its own source split from the
+      * given one, so the match is reproducible from that source's seed.
+      * 
+      * @param player1 the first bot.
+      * @param player2 the second bot.
+      * @param random the source of randomness for this match.
+      */
+    public Arbiter(RoShamBot player1, RoShamBot player2, RandomSource random) {
+        this(player1, player2);
+        RandomSource random1 = random.split();
+        RandomSource random2 = random.split();
+        if (player1 instanceof RandomizedBot)
+            ((RandomizedBot)player1).setRandomSource(random1);
+        if (player2 instanceof RandomizedBot)
+            ((RandomizedBot)player2).setRandomSource(random2);
     }
     
     /** Returns the current score of this match.
@@ -33,10 +54,53 @@ public class Arbiter {
       * for player 1, the second element is the number of ties, and the third
       * element is the number of wins for player 2.
       */
-    public int[] getCurrentScore() {
+    public long[] getCurrentScore() {
         return Arrays.copyOf(this.score, this.score.length);
     }
     
+    /** Turns on timing of every getNextMove call made by this arbiter. Must be
+      * called before the rounds to be measured are played.
+      */
+    public void enableTiming() {
+        if (this.latency1 == null) {
+            this.latency1 = new LatencyHistogram();
+            this.latency2 = new LatencyHistogram();
+        }
+    }
+    
+    /** Returns the getNextMove latencies of player 1, or null if timing is
+      * not enabled.
+      */
+    public LatencyHistogram getPlayer1Latency() {
+        return this.latency1;
+    }
+    
+    /** Returns the getNextMove latencies of player 2, or null if timing is
+      * not enabled.
+      */
+    public LatencyHistogram getPlayer2Latency() {
+        return this.latency2;
+    }
+    
+    /** Records every subsequent round of this match to the given transcript.
+      * The arbiter does not close the transcript.
+      * 
+      * @param transcript the transcript to append to, or null to stop
+      *        recording.
+      */
+    public void setTranscript(TranscriptWriter transcript) {
+        this.transcript = transcript;
+    }
+    
+    /** Asks a bot for its next move, timing the call if a histogram is given. */
+    private static Action nextMove(RoShamBot player, LatencyHistogram latency, Action lastOpponentMove) {
+        if (latency == null)
+            return player.getNextMove(lastOpponentMove);
+        long start = System.nanoTime();
+        Action move = player.getNextMove(lastOpponentMove);
+        latency.record(System.nanoTime() - start);
+        return move;
+    }
     
     /** Plays a single round between player 1 and 2. */
     public void runRound() {
@@ -46,47 +110,87 @@ public class Arbiter {
         if (this.roundsCompleted == 0) {
             // For very first round, we pretend that both players threw ROCK
             // on previous round.
-            a1 = player1.getNextMove(Action.ROCK);
-            a2 = player2.getNextMove(Action.ROCK);
+            a1 = nextMove(player1, latency1, Action.ROCK);
+            a2 = nextMove(player2, latency2, Action.ROCK);
         }
         else {
             // Pass in opponent's last move
-            a1 = player1.getNextMove(this.lastRound[1]);
-            a2 = player2.getNextMove(this.lastRound[0]);
+            a1 = nextMove(player1, latency1, this.lastRound[1]);
+            a2 = nextMove(player2, latency2, this.lastRound[0]);
         }
         
         // Determine winner, update scores and record the player actions.
-        boolean p1Win = (((a1 == Action.SCISSORS) && (a2 == Action.PAPER)) ||
-                         ((a1 == Action.PAPER) && (a2 == Action.ROCK)) ||
-                         ((a1 == Action.ROCK) && (a2 == Action.LIZARD)) ||
-                         ((a1 == Action.LIZARD) && (a2 == Action.SPOCK)) ||
-                         ((a1 == Action.SPOCK) && (a2 == Action.SCISSORS)) ||
-                         ((a1 == Action.SCISSORS) && (a2 == Action.LIZARD)) ||
-                         ((a1 == Action.LIZARD) && (a2 == Action.PAPER)) ||
-                         ((a1 == Action.PAPER) && (a2 == Action.SPOCK)) ||
-                         ((a1 == Action.SPOCK) && (a2 == Action.ROCK)) ||
-                         ((a1 == Action.ROCK) && (a2 == Action.SCISSORS)));
-        
-        boolean p2Win = (((a2 == Action.SCISSORS) && (a1 == Action.PAPER)) ||
-                         ((a2 == Action.PAPER) && (a1 == Action.ROCK)) ||
-                         ((a2 == Action.ROCK) && (a1 == Action.LIZARD)) ||
-                         ((a2 == Action.LIZARD) && (a1 == Action.SPOCK)) ||
-                         ((a2 == Action.SPOCK) && (a1 == Action.SCISSORS)) ||
-                         ((a2 == Action.SCISSORS) && (a1 == Action.LIZARD)) ||
-                         ((a2 == Action.LIZARD) && (a1 == Action.PAPER)) ||
-                         ((a2 == Action.PAPER) && (a1 == Action.SPOCK)) ||
-                         ((a2 == Action.SPOCK) && (a1 == Action.ROCK)) ||
-                         ((a2 == Action.ROCK) && (a1 == Action.SCISSORS)));
-        
-        if (p1Win)
-            this.score[0]++;
-        else if (p2Win)
-            this.score[2]++;
-        else // tie
-            this.score[1]++;
+        // score[0] = p1 win (outcome 1), score[1] = tie (0), score[2] = p2 win (-1)
+        this.score[1 - Outcomes.outcome(a1, a2)]++;
+        if (this.transcript != null)
+            this.transcript.record(a1, a2);
         
         this.lastRound[0] = a1;
         this.lastRound[1] = a2;
         this.roundsCompleted++;
     }
+    
+    /** Returns the number of rounds played so far in this match. */
+    public long getRoundsCompleted() {
+        return this.roundsCompleted;
+    }
+    
+    /** Plays n rounds between player 1 and 2.
+      * 
+      * Equivalent to calling {@link #runRound()} n times, but keeps the match
+      * state in locals for the duration of the loop and allocates nothing per
+      * round. The running score of the match is updated as well. When timing
+      * is enabled, the elapsed time includes the cost of the measurements.
+      * 
+      * @param n the number of rounds to play.
+      * @return the outcome of these n rounds and the time taken to play them.
+      * @throws IllegalArgumentException if n is negative.
+      */
+    public MatchResult runRounds(long n) {
+        if (n < 0)
+            throw new IllegalArgumentException("number of rounds must be non-negative: " + n);
+        
+        RoShamBot p1 = this.player1;
+        RoShamBot p2 = this.player2;
+        LatencyHistogram l1 = this.latency1;
+        LatencyHistogram l2 = this.latency2;
+        TranscriptWriter t = this.transcript;
+        Action last1 = this.lastRound[0];
+        Action last2 = this.lastRound[1];
+        if (this.roundsCompleted == 0) {
+            // For very first round, we pretend that both players threw ROCK
+            // on previous round.
+            last1 = Action.ROCK;
+            last2 = Action.ROCK;
+        }
+        
+        long wins = 0;
+        long ties = 0;
+        long start = System.nanoTime();
+        for (long i = 0; i < n; i++) {
+            Action a1 = nextMove(p1, l1, last2);
+            Action a2 = nextMove(p2, l2, last1);
+            int outcome = Outcomes.outcome(a1, a2);
+            if (outcome == Outcomes.WIN)
+                wins++;
+            else if (outcome == Outcomes.TIE)
+                ties++;
+            if (t != null)
+                t.record(a1, a2);
+            last1 = a1;
+            last2 = a2;
+        }
+        long elapsed = System.nanoTime() - start;
+        long losses = n - wins - ties;
+        
+        if (n > 0) {
+            this.lastRound[0] = last1;
+            this.lastRound[1] = last2;
+            this.score[0] += wins;
+            this.score[1] += ties;
+            this.score[2] += losses;
+            this.roundsCompleted += n;
+        }
+        return new MatchResult(wins, ties, losses, elapsed);
+    }
 }
\ No newline at end of file
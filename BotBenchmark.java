@@ -0,0 +1,205 @@
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Benchmark harness measuring the steady-state getNextMove throughput and
+  * allocation rate of Rock-Paper-Scissors-Lizard-Spock bots.
+  *
+  * Each bot is first pre-warmed by playing a given number of rounds against
+  * a seeded opponent, so that its history has the requested length. It then
+  * plays further timed iterations against the same opponent,
+  * following the usual warmup/measurement structure of a microbenchmark: the
+  * first iterations only let the JIT settle and are discarded.
+  *
+  * Allocation is measured per thread through the HotSpot ThreadMXBean, and
+  * is reported as unavailable on JVMs without it.
+  */
+public class BotBenchmark {
+
+    private static final List<String> DEFAULT_BOTS = Arrays.asList(
+        "ApeBot", "NashBot", "IocaineBot", "MasterBot2", "CocainePowder", "PeraNai");
+    private static final long[] DEFAULT_HISTORY = { 1000, 10000, 100000 };
+
+    private static volatile int sink; // keeps the JIT from eliding moves
+
+    /** The opponents bots can be warmed and measured against. Random moves are
+      * drawn as they are played rather than replayed from a stored sequence,
+      * which would repeat and flatter history-matching bots.
+      */
+    enum Opponent {
+        /** Plays ROCK, PAPER, SCISSORS, LIZARD, SPOCK in turn. */
+        CYCLE,
+        /** Plays uniformly at random from a fixed seed. */
+        UNIFORM,
+        /** Plays ROCK half the time and uniformly otherwise, from a fixed seed. */
+        BIASED;
+
+        private static final Action[] ACTIONS = Action.values();
+
+        Action next(RandomSource random, long round) {
+            switch (this) {
+                case CYCLE:
+                    return ACTIONS[(int) (round % ACTIONS.length)];
+                case UNIFORM:
+                    return random.nextAction();
+                default:
+                    return random.nextBoolean() ? Action.ROCK : random.nextAction();
+            }
+        }
+    }
+
+    private final long seed;
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+    private final ThreadMXBean threads;
+
+    /** Creates a harness.
+      *
+      * @param seed the seed for the opponents and the bots.
+      * @param warmupIterations the number of discarded iterations per run.
+      * @param measurementIterations the number of measured iterations per run.
+      * @param iterationMillis the duration of each iteration.
+      */
+    public BotBenchmark(long seed, int warmupIterations, int measurementIterations, long iterationMillis) {
+        this.seed = seed;
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationMillis * 1000000L;
+        this.threads = ManagementFactory.getThreadMXBean();
+    }
+
+    /** Benchmarks one bot at one history length against one opponent.
+      *
+      * @return { operations per second, bytes allocated per operation }; the
+      *         latter is negative if allocation cannot be measured.
+      * @throws ReflectiveOperationException if the bot could not be created.
+      */
+    public double[] run(String botName, long history, Opponent opponent) throws ReflectiveOperationException {
+        // Independent streams for the opponent and the bot, so the bot's
+        // random choices do not replay the opponent's moves
+        RandomSource random = new RandomSource(seed);
+        RandomSource moves = random.split();
+        RoShamBot bot = Tournament.loadBot(botName);
+        if (bot instanceof RandomizedBot)
+            ((RandomizedBot)bot).setRandomSource(random.split());
+
+        // Pre-warm to the requested history length
+        long round = 0;
+        int acc = 0;
+        for (; round < history; round++)
+            acc += bot.getNextMove(opponent.next(moves, round)).ordinal();
+
+        long totalOps = 0;
+        long totalNanos = 0;
+        long totalBytes = 0;
+        for (int iteration = 0; iteration < warmupIterations + measurementIterations; iteration++) {
+            long ops = 0;
+            long bytesBefore = allocatedBytes();
+            long start = System.nanoTime();
+            long now = start;
+            // Check the clock every 64 moves to keep its cost out of the result
+            while (now - start < iterationNanos) {
+                for (int k = 0; k < 64; k++, round++)
+                    acc += bot.getNextMove(opponent.next(moves, round)).ordinal();
+                ops += 64;
+                now = System.nanoTime();
+            }
+            long bytes = allocatedBytes() - bytesBefore;
+            if (iteration >= warmupIterations) {
+                totalOps += ops;
+                totalNanos += now - start;
+                totalBytes += bytes;
+            }
+        }
+        sink = acc;
+
+        double opsPerSecond = totalOps * 1e9 / totalNanos;
+        double bytesPerOp = (allocatedBytes() < 0) ? -1.0 : (double) totalBytes / totalOps;
+        return new double[] { opsPerSecond, bytesPerOp };
+    }
+
+    private long allocatedBytes() {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled())
+                return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    public static void main(String[] args) {
+        List<String> bots = DEFAULT_BOTS;
+        long[] histories = DEFAULT_HISTORY;
+        List<Opponent> opponents = Arrays.asList(Opponent.values());
+        long seed = 42;
+        int warmup = 3;
+        int iterations = 5;
+        long millis = 500;
+
+        try {
+            for (int i = 0; i < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "-bots":
+                        bots = Arrays.asList(value.split(","));
+                        break;
+                    case "-history":
+                        histories = Arrays.stream(value.split(",")).mapToLong(Long::parseLong).toArray();
+                        break;
+                    case "-opponent":
+                        opponents = new ArrayList<>();
+                        for (String name : value.split(","))
+                            opponents.add(Opponent.valueOf(name.toUpperCase()));
+                        break;
+                    case "-seed":
+                        seed = Long.parseLong(value);
+                        break;
+                    case "-warmup":
+                        warmup = Integer.parseInt(value);
+                        break;
+                    case "-iterations":
+                        iterations = Integer.parseInt(value);
+                        break;
+                    case "-time":
+                        millis = Long.parseLong(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException(args[i]);
+                }
+            }
+            if (iterations < 1 || millis < 1)
+                throw new IllegalArgumentException();
+        }
+        catch (RuntimeException e) {
+            System.out.println("Usage: java BotBenchmark [-bots <b1,b2,...>] [-history <h1,h2,...>]");
+            System.out.println("                         [-opponent cycle,uniform,biased] [-seed <s>]");
+            System.out.println("                         [-warmup <n>] [-iterations <n>] [-time <ms>]");
+            System.out.println("Example:");
+            System.out.println("java BotBenchmark -bots IocaineBot,PeraNai -history 1000,10000 -opponent biased");
+            System.exit(-1);
+        }
+
+        BotBenchmark benchmark = new BotBenchmark(seed, warmup, iterations, millis);
+        System.out.printf("%-16s %9s %-8s %14s %12s%n", "Bot", "History", "Opponent", "ops/s", "B/op");
+        for (String bot : bots) {
+            for (long history : histories) {
+                for (Opponent opponent : opponents) {
+                    try {
+                        double[] result = benchmark.run(bot, history, opponent);
+                        System.out.printf("%-16s %9d %-8s %14.0f %12s%n", bot, history,
+                                          opponent.name().toLowerCase(), result[0],
+                                          (result[1] < 0) ? "n/a" : String.format("%.1f", result[1]));
+                    }
+                    catch (ReflectiveOperationException e) {
+                        System.out.println("Error: bot " + bot + " could not be loaded.");
+                        System.exit(-1);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -3,47 +3,43 @@ import java.math.BigDecimal;
 import java.math.MathContext;
 import java.math.RoundingMode;
 import java.util.Map;
-import java.util.Random;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.ArrayList;
 
-public class CocainePowder implements RoShamBot {
+public class CocainePowder implements RandomizedBot {
 
     // Instance variables to keep track of
     public int consecutiveLosses;
     public List<Action> botMoveHistory;
     public List<Action> opponentMoveHistory;
     private Action lastOpponentMove = null;
+    private RandomSource random = new RandomSource();
     public String usedStrategy = null;
     public Map<String, Map<String, Action>> recommendedMoves;
+    private int[] botMoveCounts; // own move counts, by ordinal
 
-    private Map<Action, Map<Action, Integer>> markovChain;
+    private static final double MARKOV_DECAY = 0.9; // share of its weight a transition keeps each round
+    private double[][] markovChain; // [previous][next] opponent transition weights, by ordinal
+    private double markovScale; // factor all weights in markovChain are stored multiplied by
     private Map<List<Action>, Map<Action, Integer>> advancedMarkovChain;
     public Map<String, Map<String, Integer>> scoreTable; // TODO: Change to private later
 
+    // Context lengths matched by history matching, longest first, and how
+    // many of the latest opponent moves they are matched within
+    private static final int[] HISTORY_LENGTHS = { 10, 9, 8, 7, 6, 5 };
+    private static final int HISTORY_WINDOW = 100;
+    private NextMoveTable[] historyContexts; // next move counts in the window, one table per length
+    private long recentContext; // last HISTORY_LENGTHS[0] opponent moves in base 5, latest lowest
+    private int[] historyWeights; // scratch space for the length-weighted vote
+
     // Class variables
     private static final List<String> strategies = Arrays.asList("random", "repeat", "ape", "rotation", "reverseRotation", "frequency", "history", "pairHistory", "markov", "advancedMarkov"); // match with implemented strategy methods
     private static final List<String> metastrategies = Arrays.asList("m0", "m1", "m2", "m3", "m4");
+    private static final Action[] ACTIONS = Action.values();
 
-    private static final Map<Action, List<Action>> beats = new HashMap<>();
-    private static final Map<Action, List<Action>> beatenBy = new HashMap<>();
-
-    static {
-        beats.put(Action.ROCK, Arrays.asList(Action.SCISSORS, Action.LIZARD));
-        beats.put(Action.PAPER, Arrays.asList(Action.ROCK, Action.SPOCK));
-        beats.put(Action.SCISSORS, Arrays.asList(Action.PAPER, Action.LIZARD));
-        beats.put(Action.LIZARD, Arrays.asList(Action.SPOCK, Action.PAPER));
-        beats.put(Action.SPOCK, Arrays.asList(Action.SCISSORS, Action.ROCK));
-
-        beatenBy.put(Action.ROCK, Arrays.asList(Action.PAPER, Action.SPOCK));
-        beatenBy.put(Action.PAPER, Arrays.asList(Action.SCISSORS, Action.LIZARD));
-        beatenBy.put(Action.SCISSORS, Arrays.asList(Action.ROCK, Action.SPOCK));
-        beatenBy.put(Action.LIZARD, Arrays.asList(Action.ROCK, Action.SCISSORS));
-        beatenBy.put(Action.SPOCK, Arrays.asList(Action.PAPER, Action.LIZARD));
-    }
 
     public CocainePowder() {
         consecutiveLosses = 0;
@@ -52,10 +48,17 @@ public class CocainePowder implements RoShamBot {
         opponentMoveHistory = new ArrayList<>();
 
         recommendedMoves = new HashMap<>();
+        botMoveCounts = new int[ACTIONS.length];
 
         initializeMarkovChain();
         initializeAdvancedMarkovChain();
         initializeScoreTable();
+
+        historyContexts = new NextMoveTable[HISTORY_LENGTHS.length];
+        for (int i = 0; i < HISTORY_LENGTHS.length; i++) {
+            historyContexts[i] = new NextMoveTable();
+        }
+        historyWeights = new int[ACTIONS.length];
     }
 
     // General bot methods begin from here
@@ -63,6 +66,11 @@ public class CocainePowder implements RoShamBot {
         return (botMoveHistory != null) ? botMoveHistory.size() : 0;
     }
 
+    @Override
+    public void setRandomSource(RandomSource random) {
+        this.random = random;
+    }
+
     private void rememberRecommendedMove(String strategy, String metastrategy, Action recommendedMove) {
         recommendedMoves.computeIfAbsent(strategy, k -> new HashMap<>()).put(metastrategy, recommendedMove);
     }
@@ -73,10 +81,48 @@ public class CocainePowder implements RoShamBot {
 
     private void updateBotHistory(Action move) {
         botMoveHistory.add(move);
+        botMoveCounts[move.ordinal()]++;
     }
 
     private void updateOpponentHistory(Action move) {
+        // Contexts that this move completes enter the window...
+        int size = opponentMoveHistory.size();
+        for (int i = 0; i < HISTORY_LENGTHS.length; i++) {
+            if (size >= HISTORY_LENGTHS[i]) {
+                historyContexts[i].increment(recentContext % power5(HISTORY_LENGTHS[i]), move);
+            }
+        }
         opponentMoveHistory.add(move);
+        if (size >= 1) {
+            updateMarkovChain(opponentMoveHistory.get(size - 1), botMoveHistory.get(size - 1), move);
+        }
+        recentContext = (recentContext * 5 + move.ordinal()) % power5(HISTORY_LENGTHS[0]);
+
+        // ...and those that started just before the window leave it
+        int start = opponentMoveHistory.size() - 1 - HISTORY_WINDOW;
+        if (start >= 0) {
+            for (int i = 0; i < HISTORY_LENGTHS.length; i++) {
+                int length = HISTORY_LENGTHS[i];
+                historyContexts[i].decrement(packContext(start, length), opponentMoveHistory.get(start + length));
+            }
+        }
+    }
+
+    private static long power5(int exponent) {
+        long power = 1;
+        for (int i = 0; i < exponent; i++) {
+            power *= 5;
+        }
+        return power;
+    }
+
+    private long packContext(int start, int length) {
+        // Same packing as recentContext, so equal contexts get equal keys
+        long context = 0;
+        for (int i = start; i < start + length; i++) {
+            context = context * 5 + opponentMoveHistory.get(i).ordinal();
+        }
+        return context;
     }
 
     private Action getPrediction(String strategy) {
@@ -129,41 +175,29 @@ public class CocainePowder implements RoShamBot {
         return oppMove;
     }
 
-    private Action getMeta(String metastrategy, Action oppMove) {
-        Action recommendedMove;
-
-        switch (metastrategy) {
-            case "m0":
-                recommendedMove = m0(oppMove);
-                break;
-            case "m1":
-                recommendedMove = m1(oppMove);
-                break;
-            case "m2":
-                recommendedMove = m2(oppMove);
-                break;
-            case "m3":
-                recommendedMove = m3(oppMove);
-                break;
-            case "m4":
-                recommendedMove = m4(oppMove);
-                break;
-            default:
-                recommendedMove = oppMove;
-                break;
-        }
-        return recommendedMove;
-    }
-
     private void initializeMarkovChain() {
-        markovChain = new HashMap<>();
-
-        for (Action currentMove : Action.values()) {
-            markovChain.put(currentMove, new HashMap<>());
-            for (Action nextMove : Action.values()) {
-                markovChain.get(currentMove).put(nextMove, 0);
+        markovChain = new double[ACTIONS.length][ACTIONS.length];
+        markovScale = 1.0;
+    }
+
+    private void updateMarkovChain(Action currentMove, Action botMove, Action nextMove) {
+        // Instead of decaying every weight each round, give each new
+        // transition more weight than the last; only their ratios matter
+        markovScale /= MARKOV_DECAY;
+        if (markovScale > 1e100) {
+            // Fold the scale back in before it overflows
+            for (double[] transitions : markovChain) {
+                for (int i = 0; i < transitions.length; i++) {
+                    transitions[i] /= markovScale;
+                }
             }
+            markovScale = 1.0;
         }
+
+        // Reward transitions out of rounds the opponent won, and penalize
+        // those out of rounds it lost
+        int reward = Outcomes.outcome(currentMove, botMove);
+        markovChain[currentMove.ordinal()][nextMove.ordinal()] += reward * markovScale;
     }
 
     private void initializeAdvancedMarkovChain() {
@@ -204,10 +238,10 @@ public class CocainePowder implements RoShamBot {
             for (String metastrategy : metastrategies) {
                 Action botMove = getRecommendedMove(strategy, metastrategy);
 
-                if (beats.get(botMove).contains(lastOpponentMove)) {
+                if (Outcomes.beats(botMove, lastOpponentMove)) {
                     // Bot wins against opponent's last move
                     addScore(strategy, metastrategy, 2);
-                } else if (beatenBy.get(botMove).contains(lastOpponentMove)) {
+                } else if (Outcomes.beats(lastOpponentMove, botMove)) {
                     // Bot loses against opponent's last move
                     addScore(strategy, metastrategy, -2);
                 } else {
@@ -240,7 +274,7 @@ public class CocainePowder implements RoShamBot {
         } else {
             Action lastBotMove = botMoveHistory.get(getRoundsPlayed()-1);
 
-            if (beatenBy.get(lastBotMove).contains(lastOpponentMove)) {
+            if (Outcomes.beats(lastOpponentMove, lastBotMove)) {
                 //Loss
                 consecutiveLosses++; // Increment consecutive losses
             } else {
@@ -251,18 +285,9 @@ public class CocainePowder implements RoShamBot {
     }
 
     // Metastrategy methods begin from here
-    private Action findCommonMove(List<Action> list1, List<Action> list2) {
-        for (Action commonAction : list1) {
-            if (list2.contains(commonAction)) {
-                return commonAction;
-            }
-        }
-        return null; // No common move found
-    }
-
     private Action determineInfrequentMove(Action move1, Action move2) {
-        int countMove1 = Collections.frequency(botMoveHistory, move1);
-        int countMove2 = Collections.frequency(botMoveHistory, move2);
+        int countMove1 = botMoveCounts[move1.ordinal()];
+        int countMove2 = botMoveCounts[move2.ordinal()];
 
         if (countMove1 < countMove2) {
             return move1;
@@ -272,75 +297,26 @@ public class CocainePowder implements RoShamBot {
     }
 
     private Action m0(Action move) {
-        List<Action> moveChoices = beatenBy.get(move);
-
-        Action option1 = moveChoices.get(0);
-        Action option2 = moveChoices.get(1);
+        Action option1 = Outcomes.counter(move, 0);
+        Action option2 = Outcomes.counter(move, 1);
 
         Action betterMove = determineInfrequentMove(option1, option2);
 
         return betterMove;
     }
 
-    private Action m1(Action move) {
-        // Beat m0's counter-strategy
-        Action strategy = m0(move);
-        Action oppResponse1 = beatenBy.get(strategy).get(0);
-        Action oppResponse2 = beatenBy.get(strategy).get(1);
-
-        List<Action> beatOppResponse1 = beatenBy.get(oppResponse1);
-        List<Action> beatOppResponse2 = beatenBy.get(oppResponse2);
-
-        Action commonMove = findCommonMove(beatOppResponse1, beatOppResponse2);
+    private Action counterMeta(Action previous, Action move) {
+        // Beat the opponent's counter-strategy to the previous metastrategy,
+        // so that m1 = counterMeta(m0), m2 = counterMeta(m1) and so on
+        Action commonMove = Outcomes.counterToCounters(previous);
 
         // If a common move is found, return it; otherwise, return the original move
         return (commonMove != null) ? commonMove : move;
     }
 
-    private Action m2(Action move) {
-        Action strategy = m1(move);
-        Action oppResponse1 = beatenBy.get(strategy).get(0);
-        Action oppResponse2 = beatenBy.get(strategy).get(1);
-
-        List<Action> beatOppResponse1 = beatenBy.get(oppResponse1);
-        List<Action> beatOppResponse2 = beatenBy.get(oppResponse2);
-
-        Action commonMove = findCommonMove(beatOppResponse1, beatOppResponse2);
-
-        return (commonMove != null) ? commonMove : move;
-    }
-
-    private Action m3(Action move) {
-        Action strategy = m2(move);
-        Action oppResponse1 = beatenBy.get(strategy).get(0);
-        Action oppResponse2 = beatenBy.get(strategy).get(1);
-
-        List<Action> beatOppResponse1 = beatenBy.get(oppResponse1);
-        List<Action> beatOppResponse2 = beatenBy.get(oppResponse2);
-
-        Action commonMove = findCommonMove(beatOppResponse1, beatOppResponse2);
-
-        return (commonMove != null) ? commonMove : move;
-    }
-
-    private Action m4(Action move) {
-        Action strategy = m3(move);
-        Action oppResponse1 = beatenBy.get(strategy).get(0);
-        Action oppResponse2 = beatenBy.get(strategy).get(1);
-
-        List<Action> beatOppResponse1 = beatenBy.get(oppResponse1);
-        List<Action> beatOppResponse2 = beatenBy.get(oppResponse2);
-
-        Action commonMove = findCommonMove(beatOppResponse1, beatOppResponse2);
-
-        return (commonMove != null) ? commonMove : move;
-    }
-
     // Strategy methods begin from here
     private Action randomAction() {
-        Random random = new Random();
-        int index = random.nextInt(Action.values().length);
-        return Action.values()[index];
+        return random.nextAction();
     }
 
     private Action repeat() {
@@ -427,7 +403,6 @@ public class CocainePowder implements RoShamBot {
 
             // Break ties randomly
             if (!mostFrequentMoves.isEmpty()) {
-                Random random = new Random();
                 return mostFrequentMoves.get(random.nextInt(mostFrequentMoves.size()));
             }
         }
@@ -436,74 +411,28 @@ public class CocainePowder implements RoShamBot {
     }
 
     private Action historyMatching() {
-        int[] sequenceLengths = { 10, 9, 8, 7, 6, 5};
-        Map<List<Action>, Map<Action, Integer>> sequenceCounts = new HashMap<>();
-
-        int windowSize = 100; // Change me
-        // Determine the starting index based on the opponent's move history size
-        int startIndex = Math.max(0, opponentMoveHistory.size() - windowSize);
-
-        for (int length : sequenceLengths) {
-            if (opponentMoveHistory.size() >= length) {
-                List<Action> lastSequence = opponentMoveHistory.subList(opponentMoveHistory.size() - length,
-                        opponentMoveHistory.size());
-
-                // Iterate over all possible sequences of the specified length in the opponent's move history
-                for (int i = startIndex; i < opponentMoveHistory.size() - length; i++) {
-                    List<Action> sequence = opponentMoveHistory.subList(i, i + length);
-
-                    if (sequence.equals(lastSequence)) {
-                        Action nextMove = opponentMoveHistory.get(i + length);
-
-                        // Update the count for the next move following the current sequence
-                        sequenceCounts.computeIfAbsent(sequence, k -> new HashMap<>());
-                        Map<Action, Integer> nextMoveCounts = sequenceCounts.get(sequence);
-                        nextMoveCounts.put(nextMove, nextMoveCounts.getOrDefault(nextMove, 0) + 1);
-                    }
+        // The moves that followed each context within the last HISTORY_WINDOW
+        // moves are counted by updateOpponentHistory. Every context length
+        // that has been seen before votes for its most common next move,
+        // weighted by its length.
+        Arrays.fill(historyWeights, 0);
+        Action mostCommonNextMove = null;
+        for (int i = 0; i < HISTORY_LENGTHS.length; i++) {
+            int length = HISTORY_LENGTHS[i];
+            if (opponentMoveHistory.size() < length) {
+                continue;
+            }
+            Action nextMove = historyContexts[i].mostFrequent(recentContext % power5(length));
+            if (nextMove != null) {
+                // Of equally weighted moves, the one backed by the longer context wins
+                historyWeights[nextMove.ordinal()] += length;
+                if (mostCommonNextMove == null
+                        || historyWeights[nextMove.ordinal()] > historyWeights[mostCommonNextMove.ordinal()]) {
+                    mostCommonNextMove = nextMove;
                 }
             }
         }
 
-        // Find the most likely next move for each sequence
-        Map<List<Action>, Action> mostLikelyNextMove = new HashMap<>();
-        for (Map.Entry<List<Action>, Map<Action, Integer>> entry : sequenceCounts.entrySet()) {
-            List<Action> sequence = entry.getKey();
-            Map<Action, Integer> counts = entry.getValue();
-
-            // Find the most common next move for this specific sequence
-            Action mostCommonNextMove = counts.entrySet().stream()
-                    .max(Map.Entry.comparingByValue())
-                    .map(Map.Entry::getKey)
-                    .orElse(null);
-
-            // Store the most common next move for this sequence
-            mostLikelyNextMove.put(sequence, mostCommonNextMove);
-        }
-
-        // Find the most common next move in general over all sequences
-        Map<Action, Integer> overallNextMoveCounts = new HashMap<>();
-        for (Action nextMove : mostLikelyNextMove.values()) {
-            overallNextMoveCounts.put(nextMove, overallNextMoveCounts.getOrDefault(nextMove, 0) + 1);
-        }
-
-        // Weight the counts based on the length of each sequence
-        Map<Action, Double> weightedNextMoveCounts = new HashMap<>();
-        for (Map.Entry<List<Action>, Action> entry : mostLikelyNextMove.entrySet()) {
-            Action nextMove = entry.getValue();
-            int count = overallNextMoveCounts.get(nextMove);
-            
-            // Weight the count based on the length of the action list
-            double weightedCount = count * entry.getKey().size() / (double) mostLikelyNextMove.size();
-            
-            weightedNextMoveCounts.put(nextMove, weightedCount);
-        }
-
-        // Find the most common next move based on weighted counts
-        Action mostCommonNextMove = weightedNextMoveCounts.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse(null);
-
         // Return the most common next move
         return (mostCommonNextMove != null) ? mostCommonNextMove : randomAction();
     }
@@ -572,37 +501,19 @@ public class CocainePowder implements RoShamBot {
     }
 
     private Action markovChain() {
-        int historyWindow = 100; // Adjust the history window to track only the last 100 moves
-        double decayFactor = 0.9; // Introduce a decay factor (adjust as needed)
-    
         if (getRoundsPlayed() >= 2) {
-            int startIndex = Math.max(0, opponentMoveHistory.size() - historyWindow);
-    
-            for (int i = startIndex; i < opponentMoveHistory.size() - 1; i++) {
-                Action currentMove = opponentMoveHistory.get(i);
-                Action nextMove = opponentMoveHistory.get(i + 1);
-    
-                // Update the count with a decay factor
-                int count = markovChain.get(currentMove).get(nextMove);
-                count = (int) (decayFactor * count);
-                markovChain.get(currentMove).put(nextMove, count);
-    
-                // Optionally, introduce rewards for winning or losing states
-                if (beats.get(currentMove).contains(botMoveHistory.get(i))) {
-                    markovChain.get(currentMove).put(nextMove, count + 1);
-                } else if (beatenBy.get(currentMove).contains(botMoveHistory.get(i))) {
-                    markovChain.get(currentMove).put(nextMove, count - 1);
-                }
-            }
-    
+            // The decayed transitions are kept up to date by updateOpponentHistory
             Action lastMove = opponentMoveHistory.get(opponentMoveHistory.size() - 1);
-            Map<Action, Integer> transitions = markovChain.get(lastMove);
-    
-            if (!transitions.isEmpty()) {
-                // Choose the next move based on the most likely transition
-                Action predictedMove = Collections.max(transitions.entrySet(), Map.Entry.comparingByValue()).getKey();
-                return predictedMove;
+            double[] transitions = markovChain[lastMove.ordinal()];
+
+            // Choose the next move based on the most likely transition
+            int predictedMove = 0;
+            for (int i = 1; i < transitions.length; i++) {
+                if (transitions[i] > transitions[predictedMove]) {
+                    predictedMove = i;
+                }
             }
+            return ACTIONS[predictedMove];
         }
         // Default to a random move if no history or transitions are available
         return randomAction();
@@ -628,9 +539,9 @@ public class CocainePowder implements RoShamBot {
                 advancedMarkovChain.get(currentState).put(nextOpponentMove, count);
     
                 // Optionally, introduce rewards for winning or losing states
-                if (beats.get(currentOpponentMove).contains(currentBotMove)) {
+                if (Outcomes.beats(currentOpponentMove, currentBotMove)) {
                     advancedMarkovChain.get(currentState).put(nextOpponentMove, count + 1);
-                } else if (beatenBy.get(currentOpponentMove).contains(currentBotMove)) {
+                } else if (Outcomes.beats(currentBotMove, currentOpponentMove)) {
                     advancedMarkovChain.get(currentState).put(nextOpponentMove, count - 1);
                 }
             }
@@ -676,7 +587,6 @@ public class CocainePowder implements RoShamBot {
                     bestMeta = metastrategy;
                 } else if (score == maxScore) {
                     // Break ties pseudo-randomly
-                    Random random = new Random();
                     if (random.nextBoolean()) {
                         bestStrategy = strategy;
                         bestMeta = metastrategy;
@@ -705,10 +615,14 @@ public class CocainePowder implements RoShamBot {
 
         for (String strategy : strategies) {
             Action oppMove = getPrediction(strategy);
-            for (String metastrategy : metastrategies) {
-                // Store the moves recommended by each strategy-meta pair this round
-                Action recommendedMove = getMeta(metastrategy, oppMove);
-                rememberRecommendedMove(strategy, metastrategy, recommendedMove);
+
+            // Store the moves recommended by each strategy-meta pair this round,
+            // each metastrategy building on the one before it
+            Action recommendedMove = m0(oppMove);
+            rememberRecommendedMove(strategy, metastrategies.get(0), recommendedMove);
+            for (int i = 1; i < metastrategies.size(); i++) {
+                recommendedMove = counterMeta(recommendedMove, oppMove);
+                rememberRecommendedMove(strategy, metastrategies.get(i), recommendedMove);
             }
         }
         checkForReset();
@@ -0,0 +1,154 @@
+import java.math.BigInteger;
+
+/** The first {@link #LENGTH} decimal digits of pi or e after the decimal
+  * point, read in a cycle.
+  *
+  * The digits are computed exactly, once per JVM, by binary splitting of the
+  * constant's series (Chudnovsky for pi, the factorial series for e) when a
+  * constant is first asked for, and shared by every reader. After that,
+  * reading a digit is an array access and memory stays fixed; positions past
+  * the end wrap around to the start.
+  */
+public final class DigitStream {
+
+    /** Number of digits computed before the stream wraps around. */
+    public static final int LENGTH = 1 << 14;
+
+    private static final int GUARD_DIGITS = 16; // computed but never served
+
+    // Each constant is computed when its holder is first used; class
+    // initialization makes that happen exactly once, safely across threads
+    private static final class Pi {
+        static final DigitStream STREAM = new DigitStream(digits(scaledPi(LENGTH + GUARD_DIGITS)));
+    }
+
+    private static final class E {
+        static final DigitStream STREAM = new DigitStream(digits(scaledE(LENGTH + GUARD_DIGITS)));
+    }
+
+    private final byte[] digits;
+
+    private DigitStream(byte[] digits) {
+        this.digits = digits;
+    }
+
+    /** Returns the digits of pi. */
+    public static DigitStream pi() {
+        return Pi.STREAM;
+    }
+
+    /** Returns the digits of e. */
+    public static DigitStream e() {
+        return E.STREAM;
+    }
+
+    /** Returns the digit at the given position after the decimal point,
+      * counting from 0 (so digit 0 of pi is 1 and digit 1 is 4), modulo
+      * {@link #LENGTH}.
+      */
+    public int digit(int index) {
+        if (index < 0)
+            throw new IndexOutOfBoundsException("negative digit index: " + index);
+        return this.digits[index % LENGTH];
+    }
+
+    private static byte[] digits(BigInteger scaled) {
+        // scaled = floor(constant * 10^precision); drop the single integer digit
+        String text = scaled.toString();
+        byte[] digits = new byte[LENGTH];
+        for (int i = 0; i < LENGTH; i++)
+            digits[i] = (byte) (text.charAt(i + 1) - '0');
+        return digits;
+    }
+
+    // pi = 426880 sqrt(10005) Q / T, from the Chudnovsky series
+
+    private static final BigInteger C3_OVER_24 = BigInteger.valueOf(640320).pow(3).divide(BigInteger.valueOf(24));
+
+    private static BigInteger scaledPi(int precision) {
+        int terms = (int) (precision / 14.181647462725477) + 2;
+        BigInteger[] pqt = chudnovsky(0, terms);
+        BigInteger one = BigInteger.TEN.pow(precision);
+        BigInteger sqrt10005 = sqrt(BigInteger.valueOf(10005).multiply(one).multiply(one));
+        return pqt[1].multiply(BigInteger.valueOf(426880)).multiply(sqrt10005).divide(pqt[2]);
+    }
+
+    /** Returns floor(sqrt(n)). BigInteger.sqrt() runs every Newton step at full
+      * precision, which is more than twice as slow at this size; here the
+      * square root of the top half of n is found first and a single Newton
+      * step then doubles its precision.
+      */
+    private static BigInteger sqrt(BigInteger n) {
+        int bits = n.bitLength();
+        if (bits <= 256)
+            return n.sqrt();
+        int shift = bits / 4;
+        BigInteger x = sqrt(n.shiftRight(2 * shift)).shiftLeft(shift);
+        x = x.add(n.divide(x)).shiftRight(1);
+        while (x.multiply(x).compareTo(n) > 0)
+            x = x.subtract(BigInteger.ONE);
+        while (x.add(BigInteger.ONE).pow(2).compareTo(n) <= 0)
+            x = x.add(BigInteger.ONE);
+        return x;
+    }
+
+    private static BigInteger[] chudnovsky(int a, int b) {
+        if (b - a == 1) {
+            BigInteger p;
+            BigInteger q;
+            if (a == 0) {
+                p = BigInteger.ONE;
+                q = BigInteger.ONE;
+            } else {
+                long k = a;
+                p = BigInteger.valueOf(6 * k - 5).multiply(BigInteger.valueOf(2 * k - 1))
+                        .multiply(BigInteger.valueOf(6 * k - 1));
+                q = BigInteger.valueOf(k).pow(3).multiply(C3_OVER_24);
+            }
+            BigInteger t = p.multiply(BigInteger.valueOf(13591409 + 545140134L * a));
+            if ((a & 1) == 1)
+                t = t.negate();
+            return new BigInteger[] { p, q, t };
+        }
+        int m = (a + b) >>> 1;
+        return combinePqt(chudnovsky(a, m), chudnovsky(m, b));
+    }
+
+    /** Joins the sums over two adjacent ranges of Chudnovsky terms. */
+    private static BigInteger[] combinePqt(BigInteger[] left, BigInteger[] right) {
+        return new BigInteger[] {
+            left[0].multiply(right[0]),
+            left[1].multiply(right[1]),
+            right[1].multiply(left[2]).add(left[0].multiply(right[2]))
+        };
+    }
+
+    // e = 1 + P / Q, where P / Q = sum over 1 <= k <= n of 1 / k!
+
+    private static BigInteger scaledE(int precision) {
+        // Enough terms that the first omitted one, 1 / (n + 1)!, is below 10^-precision
+        int n = 1;
+        double log10Factorial = 0;
+        while (log10Factorial <= precision + 1) {
+            n++;
+            log10Factorial += Math.log10(n);
+        }
+        BigInteger[] pq = factorialSeries(0, n);
+        return pq[0].add(pq[1]).multiply(BigInteger.TEN.pow(precision)).divide(pq[1]);
+    }
+
+    private static BigInteger[] factorialSeries(int a, int b) {
+        if (b - a == 1)
+            return new BigInteger[] { BigInteger.ONE, BigInteger.valueOf(b) };
+        int m = (a + b) >>> 1;
+        return combinePq(factorialSeries(a, m), factorialSeries(m, b));
+    }
+
+    /** Joins the sums over two adjacent ranges of factorial series terms. */
+    private static BigInteger[] combinePq(BigInteger[] left, BigInteger[] right) {
+        return new BigInteger[] {
+            left[0].multiply(right[1]).add(right[0]),
+            left[1].multiply(right[1])
+        };
+    }
+}
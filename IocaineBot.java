@@ -1,284 +1,172 @@
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.lang.Math;
-import java.util.List;
-import java.util.Map;
-import java.util.Arrays;
-
-public class IocaineBot implements RoShamBot {
-    int MEMORY_SIZE = 30;
-    HashMap<String, Integer> strats = new HashMap<String, Integer>();
-    HashMap<Action, List<Action>> beaten_by = new HashMap<Action, List<Action>>();
-    HashMap<Action, List<Action>> beats = new HashMap<Action, List<Action>>();
-    ArrayList<Action> opp_memory;
-    ArrayList<Action> own_memory;
-    int count = 0;
+public class IocaineBot implements RandomizedBot {
+    // Horizons (in moves) over which both histories are analysed
+    static final int[] HORIZONS = { 5, 10, 50, 100, 1000, MoveFrequencies.ALL_TIME };
+    // Frequency and history-matching predictions, for each history and horizon
+    static final int NUM_PREDICTIONS = 2 * 2 * HORIZONS.length;
+
+    // The strategies p0..p4 and p_prime_0..p_prime_4, each played on every
+    // prediction, and how well each of those candidates would have done so far
+    interface Strategy {
+        Action play(Action prediction);
+    }
+    static final Strategy[] STRATS = { IocaineBot::p0, IocaineBot::p1, IocaineBot::p2, IocaineBot::p3, IocaineBot::p4,
+                                       IocaineBot::p_prime_0, IocaineBot::p_prime_1, IocaineBot::p_prime_2,
+                                       IocaineBot::p_prime_3, IocaineBot::p_prime_4 };
+    // What each strategy plays on each prediction, [prediction][strategy] by
+    // ordinal; the strategies depend on nothing else, so this never changes
+    static final Action[][] RESPONSES = new Action[Action.values().length][STRATS.length];
+    static {
+        for (Action prediction : Action.values()) {
+            for (int s = 0; s < STRATS.length; s++) {
+                RESPONSES[prediction.ordinal()][s] = STRATS[s].play(prediction);
+            }
+        }
+    }
+    int[] scores = new int[NUM_PREDICTIONS * STRATS.length];
+    Action[] stratMoves = new Action[NUM_PREDICTIONS * STRATS.length]; // each candidate's move this round
+    MatchStatistics stats; // both players' histories, kept up to date incrementally
+    Action lastOwnMove = null;
+    RandomSource random = new RandomSource();
 
     public IocaineBot() {
-        beats.put(Action.ROCK, Arrays.asList(Action.SCISSORS, Action.LIZARD));
-        beats.put(Action.PAPER, Arrays.asList(Action.ROCK, Action.SPOCK));
-        beats.put(Action.SCISSORS, Arrays.asList(Action.PAPER, Action.LIZARD));
-        beats.put(Action.LIZARD, Arrays.asList(Action.SPOCK, Action.PAPER));
-        beats.put(Action.SPOCK, Arrays.asList(Action.SCISSORS, Action.ROCK));
-
-        beaten_by.put(Action.ROCK, Arrays.asList(Action.PAPER, Action.SPOCK));
-        beaten_by.put(Action.PAPER, Arrays.asList(Action.SCISSORS, Action.LIZARD));
-        beaten_by.put(Action.SCISSORS, Arrays.asList(Action.ROCK, Action.SPOCK));
-        beaten_by.put(Action.LIZARD, Arrays.asList(Action.ROCK, Action.SCISSORS));
-        beaten_by.put(Action.SPOCK, Arrays.asList(Action.PAPER, Action.LIZARD));
-
-        strats.put("p0", 0);
-        strats.put("p1", 0);
-        strats.put("p2", 0);
-        strats.put("p3", 0);
-        strats.put("p4", 0);
-        // strats.put("p_prime_0", 0);
-        // strats.put("p_prime_1", 0);
-        // strats.put("p_prime_2", 0);
-        // strats.put("p_prime_3", 0);
-        // strats.put("p_prime_4", 0);
-
-        opp_memory = new ArrayList<Action>();
-        own_memory = new ArrayList<Action>();
+        stats = new MatchStatistics(HORIZONS);
+    }
 
-        // Init with ROCK
-        for (int i = 0; i < MEMORY_SIZE; i++) {
-            opp_memory.add(Action.ROCK);
-            own_memory.add(Action.ROCK);
-        }
+    static Action p0(Action a) { // Beat opponents move
+        return Outcomes.counter(a, 0);
     }
 
-    Action p0(Action a) { // Beat opponents move
-        // return beaten_by.get(a).get((int) Math.random() * beaten_by.size());
-        return beaten_by.get(a).get(0);
+    static Action p1(Action a) { // Beat p0
+        Action target = p0(a);
+        Action action = Outcomes.counterToCounters(target);
+        return (action != null) ? action : a;
     }
 
-    Action p1(Action a) { // Beat p0
-        Action target1 = beaten_by.get(p0(a)).get(0);
-        Action target2 = beaten_by.get(p0(a)).get(1);
-        List<Action> beatTarget1 = beaten_by.get(target1);
-        List<Action> beatTarget2 = beaten_by.get(target2);
-        for (Action action : beatTarget1) {
-            if (beatTarget2.contains(action)) {
-                return action;
-            }
-        }
-        return a;
+    static Action p2(Action a) { // Beat p1
+        Action target = p1(a);
+        Action action = Outcomes.counterToCounters(target);
+        return (action != null) ? action : a;
     }
 
-    Action p2(Action a) { // Beat p1
-        Action target1 = beaten_by.get(p1(a)).get(0);
-        Action target2 = beaten_by.get(p1(a)).get(1);
-        List<Action> beatTarget1 = beaten_by.get(target1);
-        List<Action> beatTarget2 = beaten_by.get(target2);
-        for (Action action : beatTarget1) {
-            if (beatTarget2.contains(action)) {
-                return action;
-            }
-        }
-        return a;
+    static Action p3(Action a) { // Beat p2
+        Action target = p2(a);
+        Action action = Outcomes.counterToCounters(target);
+        return (action != null) ? action : a;
     }
 
-    Action p3(Action a) { // Beat p2
-        Action target1 = beaten_by.get(p2(a)).get(0);
-        Action target2 = beaten_by.get(p2(a)).get(1);
-        List<Action> beatTarget1 = beaten_by.get(target1);
-        List<Action> beatTarget2 = beaten_by.get(target2);
-        for (Action action : beatTarget1) {
-            if (beatTarget2.contains(action)) {
-                return action;
-            }
-        }
-        return a;
+    static Action p4(Action a) { // Beat p3
+        Action target = p3(a);
+        Action action = Outcomes.counterToCounters(target);
+        return (action != null) ? action : a;
     }
 
-    Action p4(Action a) { // Beat p3
-        Action target1 = beaten_by.get(p3(a)).get(0);
-        Action target2 = beaten_by.get(p3(a)).get(1);
-        List<Action> beatTarget1 = beaten_by.get(target1);
-        List<Action> beatTarget2 = beaten_by.get(target2);
-        for (Action action : beatTarget1) {
-            if (beatTarget2.contains(action)) {
-                return action;
-            }
-        }
-        return a;
+    // Implementing the P' strategies by considering the counter to what P
+    // strategies would play, i.e. beating an opponent who reasons like p0..p4
+    // about a prediction of our own move
+    static Action p_prime_0(Action a) {
+        return Outcomes.counter(p0(a), 0);
     }
 
-    // // Implementing the P' strategies by considering the counter to what P
-    // // strategies would play
-    // Action p_prime_0(Action a) {
-    // Action p0Move = p0(a);
-    // List<Action> counters = beaten_by.get(p0Move);
-    // return counters.get((int) (Math.random() * counters.size()));
-    // }
+    static Action p_prime_1(Action a) {
+        return Outcomes.counter(p1(a), 0);
+    }
 
-    // Action p_prime_1(Action a) {
-    // Action p1Move = p1(a);
-    // List<Action> counters = beaten_by.get(p1Move);
-    // return counters.get((int) (Math.random() * counters.size()));
-    // }
+    static Action p_prime_2(Action a) {
+        return Outcomes.counter(p2(a), 0);
+    }
 
-    // Action p_prime_2(Action a) {
-    // Action p2Move = p2(a);
-    // List<Action> counters = beaten_by.get(p2Move);
-    // return counters.get((int) (Math.random() * counters.size()));
-    // }
+    static Action p_prime_3(Action a) {
+        return Outcomes.counter(p3(a), 0);
+    }
 
-    // Action p_prime_3(Action a) {
-    // Action p3Move = p3(a);
-    // List<Action> counters = beaten_by.get(p3Move);
-    // return counters.get((int) (Math.random() * counters.size()));
-    // }
+    static Action p_prime_4(Action a) {
+        return Outcomes.counter(p4(a), 0);
+    }
 
-    // Action p_prime_4(Action a) {
-    // Action p4Move = p4(a);
-    // List<Action> counters = beaten_by.get(p4Move);
-    // return counters.get((int) (Math.random() * counters.size()));
-    // }
+    @Override
+    public void setRandomSource(RandomSource random) {
+        this.random = random;
+    }
 
-    private void updateStrategyScores(Action lastOpponentMove, Action strategyMove, String strategyName) {
-        if (beats.get(strategyMove).contains(lastOpponentMove)) {
+    private void updateStrategyScores(Action lastOpponentMove, Action strategyMove, int strategy) {
+        if (Outcomes.beats(strategyMove, lastOpponentMove)) {
             // This strategy would have won
-            strats.put(strategyName, strats.get(strategyName) + 2);
-        } else if (beaten_by.get(lastOpponentMove).contains(strategyMove)) {
+            scores[strategy] += 2;
+        } else if (Outcomes.beats(lastOpponentMove, strategyMove)) {
             // This strategy would have lost
-            strats.put(strategyName, strats.get(strategyName) - 1);
+            scores[strategy] -= 1;
         } else {
             // Ties also decrease the score
-            strats.put(strategyName, strats.get(strategyName) - 1);
+            scores[strategy] -= 1;
         }
 
     }
 
-    private String selectBestStrategy() {
-        int maxScore = Integer.MIN_VALUE;
-        List<String> bestStrategies = new ArrayList<>();
-
-        for (Map.Entry<String, Integer> entry : strats.entrySet()) {
-            if (entry.getValue() > maxScore) {
-                bestStrategies.clear();
-                maxScore = entry.getValue();
-                bestStrategies.add(entry.getKey());
-            } else if (entry.getValue() == maxScore) {
-                bestStrategies.add(entry.getKey());
+    private int selectBestStrategy() {
+        int best = 0;
+        int ties = 0;
+
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+                ties = 1;
+            } else if (scores[i] == scores[best]) {
+                // In case of a tie, keep each of the k best with probability 1/k
+                ties++;
+                if (random.nextInt(ties) == 0) {
+                    best = i;
+                }
             }
         }
-
-        // In case of a tie, pick a random strategy from the best ones
-        return bestStrategies.get((int) (Math.random() * bestStrategies.size()));
+        return best;
     }
 
-    private Action executeStrategy(String strategyName, Action oppMode) {
-        switch (strategyName) {
-            case "p0":
-                return p0(oppMode);
-            case "p1":
-                return p1(oppMode);
-            case "p2":
-                return p2(oppMode);
-            case "p3":
-                return p3(oppMode);
-            case "p4":
-                return p4(oppMode);
-            // case "p_prime_0":
-            // return p_prime_0(oppMode);
-            // case "p_prime_1":
-            // return p_prime_1(oppMode);
-            // case "p_prime_2":
-            // return p_prime_2(oppMode);
-            // case "p_prime_3":
-            // return p_prime_3(oppMode);
-            // case "p_prime_4":
-            // return p_prime_4(oppMode);
-            default:
-                // If it's not one of the known strategies, default to a random move
-                return Action.values()[(int) (Math.random() * Action.values().length)];
+    Action predict(int prediction) {
+        // Predictions are laid out as [kind][player][horizon]
+        int horizon = prediction % HORIZONS.length;
+        int player = (prediction / HORIZONS.length) % 2;
+        if (prediction >= 2 * HORIZONS.length) {
+            Action match = stats.historyMatch(player, horizon);
+            if (match != null) {
+                return match;
+            }
         }
+        // Most frequent move, also used when no history matches
+        return stats.mostFrequent(player, horizon, random);
     }
 
     public Action getNextMove(Action lastOpponentMove) {
-        // Update memories
-        if (count < MEMORY_SIZE) {
-            opp_memory.add(lastOpponentMove);
-            own_memory.add(lastOpponentMove); // Placeholder for own move
-        } else {
-            opp_memory.set(count % MEMORY_SIZE, lastOpponentMove);
-            own_memory.set(count % MEMORY_SIZE, lastOpponentMove); // Placeholder for own move
+        if (lastOwnMove != null) {
+            if (stats.getRounds() > 0) {
+                // Score every candidate on what it recommended for this move
+                for (int i = 0; i < stratMoves.length; i++) {
+                    updateStrategyScores(lastOpponentMove, stratMoves[i], i);
+                }
+            }
+            // Update memory
+            stats.record(lastOpponentMove, lastOwnMove);
         }
-        count++;
-
-        // Calculate mode for opponent
-        Action oppMode = mode(opp_memory);
 
-        // Run strategies
-        Action p0Move = p0(oppMode);
-        Action p1Move = p1(oppMode);
-        Action p2Move = p2(oppMode);
-        Action p3Move = p3(oppMode);
-        Action p4Move = p4(oppMode);
-        // Action p_prime_0Move = p_prime_0(oppMode);
-        // Action p_prime_1Move = p_prime_1(oppMode);
-        // Action p_prime_2Move = p_prime_2(oppMode);
-        // Action p_prime_3Move = p_prime_3(oppMode);
-        // Action p_prime_4Move = p_prime_4(oppMode);
-
-        // Update strategy scores
-        updateStrategyScores(lastOpponentMove, p0Move, "p0");
-        updateStrategyScores(lastOpponentMove, p1Move, "p1");
-        updateStrategyScores(lastOpponentMove, p2Move, "p2");
-        updateStrategyScores(lastOpponentMove, p3Move, "p3");
-        updateStrategyScores(lastOpponentMove, p4Move, "p4");
-        // updateStrategyScores(lastOpponentMove, p_prime_0Move, "p_prime_0");
-        // updateStrategyScores(lastOpponentMove, p_prime_1Move, "p_prime_1");
-        // updateStrategyScores(lastOpponentMove, p_prime_2Move, "p_prime_2");
-        // updateStrategyScores(lastOpponentMove, p_prime_3Move, "p_prime_3");
-        // updateStrategyScores(lastOpponentMove, p_prime_4Move, "p_prime_4");
-
-        // Select the best strategy
-        String bestStrategy = selectBestStrategy();
+        Action nextMove;
+        if (stats.getRounds() == 0) {
+            // Nothing to predict from yet
+            nextMove = random.nextAction();
+        } else {
+            // Run every strategy on every prediction
+            for (int p = 0; p < NUM_PREDICTIONS; p++) {
+                Action[] responses = RESPONSES[predict(p).ordinal()];
+                for (int s = 0; s < responses.length; s++) {
+                    stratMoves[p * responses.length + s] = responses[s];
+                }
+            }
 
-        // Execute the best strategy
-        Action nextMove = executeStrategy(bestStrategy, oppMode);
+            // Select the best candidate, and play what it recommends
+            nextMove = stratMoves[selectBestStrategy()];
+        }
 
         // Record the move you're actually making
-        own_memory.set(count % MEMORY_SIZE, nextMove);
+        lastOwnMove = nextMove;
 
         return nextMove;
     }
-
-    public Action mode(ArrayList<Action> array) {
-        HashMap<Action, Integer> frequencyMap = new HashMap<>();
-        Action mode = null;
-        int maxFrequency = 0;
-
-        for (Action action : array) {
-            int frequency = frequencyMap.getOrDefault(action, 0) + 1;
-            frequencyMap.put(action, frequency);
-
-            if (frequency > maxFrequency) {
-                maxFrequency = frequency;
-                mode = action;
-            }
-        }
-        return mode;
-    }
-
-    public static void main(String[] args) {
-        IocaineBot bot = new IocaineBot();
-
-        // Simulate a series of opponent moves
-        Action[] opponentMoves = { Action.ROCK, Action.PAPER, Action.SCISSORS, Action.LIZARD, Action.SPOCK };
-
-        // Debugging the return values of p0 through p4 for each opponent move
-        for (Action move : opponentMoves) {
-            System.out.println("Opponent Move: " + move);
-            System.out.println("p0: " + bot.p0(move));
-            System.out.println("p1: " + bot.p1(move));
-            System.out.println("p2: " + bot.p2(move));
-            System.out.println("p3: " + bot.p3(move));
-            System.out.println("p4: " + bot.p4(move));
-            System.out.println();
-        }
-    }
 }
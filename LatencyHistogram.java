@@ -0,0 +1,105 @@
+
+/** Fixed-memory histogram of latencies in nanoseconds.
+  *
+  * Values are grouped into log-linear buckets: each power of two is split
+  * into 16 equal sub-buckets, so any recorded value is reported to within
+  * about 6% while the whole range of a long fits in under 1000 counters.
+  * Recording is a few shifts and an array increment and never allocates.
+  *
+  * Not thread-safe; use one histogram per thread and {@link #add} them.
+  */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int NUM_BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+    private final long[] counts;
+    private long count;
+    private long total;
+    private long max;
+
+    /** Creates an empty histogram. */
+    public LatencyHistogram() {
+        this.counts = new long[NUM_BUCKETS];
+    }
+
+    /** Records a single latency.
+      *
+      * @param nanos the latency in nanoseconds; negative values count as 0.
+      */
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        this.counts[bucketOf(nanos)]++;
+        this.count++;
+        this.total += nanos;
+        if (nanos > this.max)
+            this.max = nanos;
+    }
+
+    /** Adds all values recorded in another histogram to this one. */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            this.counts[i] += other.counts[i];
+        }
+        this.count += other.count;
+        this.total += other.total;
+        this.max = Math.max(this.max, other.max);
+    }
+
+    /** Returns the number of recorded values. */
+    public long getCount() {
+        return this.count;
+    }
+
+    /** Returns the largest recorded value, or 0 if empty. */
+    public long getMax() {
+        return this.max;
+    }
+
+    /** Returns the mean of the recorded values, or 0 if empty. */
+    public double getMean() {
+        return (this.count == 0) ? 0.0 : (double) this.total / this.count;
+    }
+
+    /** Returns an upper bound on the value below which the given percentage
+      * of recorded values fall.
+      *
+      * @param percentile a percentage between 0 and 100.
+      * @return the percentile value in nanoseconds, or 0 if empty.
+      */
+    public long getValueAtPercentile(double percentile) {
+        if (this.count == 0)
+            return 0;
+        long rank = (long) Math.ceil(percentile / 100.0 * this.count);
+        if (rank < 1)
+            rank = 1;
+
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += this.counts[i];
+            if (seen >= rank)
+                return Math.min(upperBoundOf(i), this.max);
+        }
+        return this.max;
+    }
+
+    private static int bucketOf(long value) {
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        if (msb < SUB_BITS)
+            return (int) value; // exact buckets for the smallest values
+        int group = msb - SUB_BITS + 1;
+        int sub = (int) (value >>> (msb - SUB_BITS)) & (SUB_COUNT - 1);
+        return (group << SUB_BITS) + sub;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        int group = bucket >>> SUB_BITS;
+        long sub = bucket & (SUB_COUNT - 1);
+        if (group == 0)
+            return sub;
+        long lower = (SUB_COUNT + sub) << (group - 1);
+        return lower + (1L << (group - 1)) - 1;
+    }
+}
@@ -1,62 +1,122 @@
-import java.lang.Math;
-import java.math.BigDecimal;
-import java.math.MathContext;
-import java.math.RoundingMode;
-import java.util.Map;
-import java.util.Random;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.ArrayList;
 
-public class MasterBot2 implements RoShamBot {
+public class MasterBot2 implements RandomizedBot {
 
     // Instance variables to keep track of
     public List<Action> botMoveHistory;
     public List<Action> opponentMoveHistory;
     private Action lastOpponentMove = null;
+    private RandomSource random = new RandomSource();
     public String usedStrategy = null;
-    public Map<String, Map<String, Action>> recommendedMoves;
+    private byte[][] recommendedMoves; // [strategy][metastrategy] recommended action ordinals
+    private int[] botMoveCounts; // own move counts, by ordinal
 
-    private Map<Action, Map<Action, Integer>> markovChain;
-    private Map<List<Action>, Map<Action, Integer>> advancedMarkovChain;
-    public Map<String, Map<String, Integer>> scoreTable; // TODO: Change to private later
+    private int[][] markovChain; // [previous][next] opponent move counts, by ordinal
+    private int[] markovPrediction; // most frequent next move for each previous move
+    private int[][] advancedMarkovChain; // [opponent * 5 + bot][next opponent] counts, by ordinal
+    private int[] advancedMarkovPrediction; // most frequent next opponent move for each state
 
-    private Integer lossStreak = 0;
-    // Class variables
-    private static final List<String> strategies = Arrays.asList("random", "repeat", "ape", "rotation",
-            "reverseRotation", "frequency", "history", "pairHistory", "markov", "advancedMarkov"); // match with
-                                                                                                   // implemented
-                                                                                                   // strategy methods
-    private static final List<String> metastrategies = Arrays.asList("m0", "m1", "m2", "m3", "m4");
+    private static final int HISTORY_LENGTH = 100; // context length for history matching
+    private RollingHash historyHash; // hash of the last HISTORY_LENGTH opponent moves
+    private NextMoveTable historyIndex; // next opponent move counts for each hashed context
+    private RollingHash pairHash; // hash of the last HISTORY_LENGTH (opponent, bot) move pairs
+    private NextMoveTable pairIndex; // next opponent move counts for each hashed pair context
+
+    // Opponent move counts over the last 10, 100 and 1000 moves and all moves
+    private static final int[] FREQUENCY_HORIZONS = { 10, 100, 1000, MoveFrequencies.ALL_TIME };
+    private MoveFrequencies opponentFrequencies;
 
-    private static final Map<Action, List<Action>> beats = new HashMap<>();
-    private static final Map<Action, List<Action>> beatenBy = new HashMap<>();
+    // Fixed tables shared by every instance, computed once per JVM
+    private static final DigitStream PI_DIGITS = DigitStream.pi();
+    private static final DigitStream E_DIGITS = DigitStream.e();
 
-    static {
-        beats.put(Action.ROCK, Arrays.asList(Action.SCISSORS, Action.LIZARD));
-        beats.put(Action.PAPER, Arrays.asList(Action.ROCK, Action.SPOCK));
-        beats.put(Action.SCISSORS, Arrays.asList(Action.PAPER, Action.LIZARD));
-        beats.put(Action.LIZARD, Arrays.asList(Action.SPOCK, Action.PAPER));
-        beats.put(Action.SPOCK, Arrays.asList(Action.SCISSORS, Action.ROCK));
+    private int[][] scoreTable; // [strategy][metastrategy] scores
 
-        beatenBy.put(Action.ROCK, Arrays.asList(Action.PAPER, Action.SPOCK));
-        beatenBy.put(Action.PAPER, Arrays.asList(Action.SCISSORS, Action.LIZARD));
-        beatenBy.put(Action.SCISSORS, Arrays.asList(Action.ROCK, Action.SPOCK));
-        beatenBy.put(Action.LIZARD, Arrays.asList(Action.ROCK, Action.SCISSORS));
-        beatenBy.put(Action.SPOCK, Arrays.asList(Action.PAPER, Action.LIZARD));
+    // How each strategy-meta pair is scored on its recent results
+    public enum Scoring {
+        WINDOWED, // sum of the results of the last SCORE_WINDOW rounds
+        DECAYED // results weighted down by 1/2^DECAY_SHIFT every round
     }
 
+    private static final int SCORE_WINDOW = 50;
+    private static final int DECAY_SHIFT = 5; // keep 31/32 of the score each round
+    private static final int SCORE_FRACTION_BITS = 8; // fixed-point precision of decayed scores
+
+    private final Scoring scoring;
+    private byte[] scoreDeltas; // ring buffer of the last SCORE_WINDOW results of every pair
+    private int scoreWindowPosition; // slot of the oldest round in scoreDeltas
+
+    // Strategies, in the order of the rows of the tables above
+    private enum Strategy {
+        RANDOM("random"), REPEAT("repeat"), APE("ape"), ROTATION("rotation"),
+        REVERSE_ROTATION("reverseRotation"), PI("pi"), E("e"), FREQUENCY10("frequency10"),
+        FREQUENCY100("frequency100"), FREQUENCY1000("frequency1000"), FREQUENCY("frequency"),
+        HISTORY("history"), PAIR_HISTORY("pairHistory"), MARKOV("markov"), ADVANCED_MARKOV("advancedMarkov");
+
+        private final String label;
+
+        Strategy(String label) {
+            this.label = label;
+        }
+    }
+
+    // Metastrategies, in the order of the columns of the tables above
+    private enum Metastrategy {
+        M0, M1, M2, M3, M4
+    }
+
+    private interface Predictor {
+        Action predict();
+    }
+
+    // Class variables
+    private static final Strategy[] STRATEGIES = Strategy.values();
+    private static final Metastrategy[] METASTRATEGIES = Metastrategy.values();
+    private static final Action[] ACTIONS = Action.values();
+
+    private final Predictor[] predictors; // strategy methods, indexed by Strategy ordinal
+
     public MasterBot2() {
+        // Scoring mode can be picked with -Dmasterbot2.scoring=windowed
+        this(Scoring.valueOf(System.getProperty("masterbot2.scoring", "decayed").toUpperCase()));
+    }
+
+    public MasterBot2(Scoring scoring) {
+        this.scoring = scoring;
         botMoveHistory = new ArrayList<>();
         opponentMoveHistory = new ArrayList<>();
 
-        recommendedMoves = new HashMap<>();
+        recommendedMoves = new byte[STRATEGIES.length][METASTRATEGIES.length];
+        botMoveCounts = new int[ACTIONS.length];
+
+        predictors = new Predictor[STRATEGIES.length];
+        predictors[Strategy.RANDOM.ordinal()] = this::randomAction;
+        predictors[Strategy.REPEAT.ordinal()] = this::repeat;
+        predictors[Strategy.APE.ordinal()] = this::apePattern;
+        predictors[Strategy.ROTATION.ordinal()] = this::rotationPattern;
+        predictors[Strategy.REVERSE_ROTATION.ordinal()] = this::reverseRotationPattern;
+        predictors[Strategy.PI.ordinal()] = this::pi;
+        predictors[Strategy.E.ordinal()] = this::e;
+        predictors[Strategy.FREQUENCY10.ordinal()] = () -> frequencyCounter(0);
+        predictors[Strategy.FREQUENCY100.ordinal()] = () -> frequencyCounter(1);
+        predictors[Strategy.FREQUENCY1000.ordinal()] = () -> frequencyCounter(2);
+        predictors[Strategy.FREQUENCY.ordinal()] = () -> frequencyCounter(3);
+        predictors[Strategy.HISTORY.ordinal()] = this::historyMatching;
+        predictors[Strategy.PAIR_HISTORY.ordinal()] = this::pairHistory;
+        predictors[Strategy.MARKOV.ordinal()] = this::markovChain;
+        predictors[Strategy.ADVANCED_MARKOV.ordinal()] = this::advancedMarkovChain;
 
         initializeMarkovChain();
         initializeAdvancedMarkovChain();
         initializeScoreTable();
+
+        historyHash = new RollingHash(HISTORY_LENGTH);
+        historyIndex = new NextMoveTable();
+        pairHash = new RollingHash(HISTORY_LENGTH);
+        pairIndex = new NextMoveTable();
+        opponentFrequencies = new MoveFrequencies(FREQUENCY_HORIZONS);
     }
 
     // General bot methods begin from here
@@ -64,186 +124,128 @@ public class MasterBot2 implements RoShamBot {
         return (botMoveHistory != null) ? botMoveHistory.size() : 0;
     }
 
-    private void rememberRecommendedMove(String strategy, String metastrategy, Action recommendedMove) {
-        recommendedMoves.computeIfAbsent(strategy, k -> new HashMap<>()).put(metastrategy, recommendedMove);
+    @Override
+    public void setRandomSource(RandomSource random) {
+        this.random = random;
     }
 
-    public Action getRecommendedMove(String strategy, String metastrategy) {
-        return recommendedMoves.getOrDefault(strategy, Collections.emptyMap()).get(metastrategy);
+    private Action getRecommendedMove(int strategy, int metastrategy) {
+        return ACTIONS[recommendedMoves[strategy][metastrategy]];
     }
 
     private void updateBotHistory(Action move) {
         botMoveHistory.add(move);
+        botMoveCounts[move.ordinal()]++;
     }
 
     private void updateOpponentHistory(Action move) {
-        opponentMoveHistory.add(move);
-    }
+        // The context that this move completes, before it slides out of view
+        if (historyHash.isFull()) {
+            historyIndex.increment(historyHash.value(), move);
+        }
+        historyHash.push(move.ordinal());
 
-    private Action getPrediction(String strategy) {
-        Action oppMove;
-        switch (strategy) {
-            case "random":
-                oppMove = randomAction();
-                break;
-            case "repeat":
-                oppMove = repeat();
-                break;
-            case "ape":
-                oppMove = apePattern();
-                break;
-            case "rotation":
-                oppMove = rotationPattern();
-                break;
-            case "reverseRotation":
-                oppMove = reverseRotationPattern();
-                break;
-            case "pi":
-                oppMove = pi();
-                break;
-            case "e":
-                oppMove = e();
-                break;
-            case "frequency":
-                oppMove = frequencyCounter();
-                break;
-            case "history":
-                oppMove = historyMatching();
-                break;
-            case "pairHistory":
-                oppMove = pairHistory();
-                break;
-            case "markov":
-                oppMove = markovChain();
-                break;
-            case "advancedMarkov":
-                oppMove = advancedMarkovChain();
-                break;
-            case "iocaine":
-                oppMove = iocainePowder();
-                break;
-            default:
-                // Handle other metastrategies if needed
-                oppMove = randomAction();
+        // Same for the joint history, with the pair of moves of each round
+        // treated as one letter of a 25-letter alphabet
+        if (pairHash.isFull()) {
+            pairIndex.increment(pairHash.value(), move);
         }
+        Action botMove = botMoveHistory.get(botMoveHistory.size() - 1);
+        pairHash.push(jointState(move, botMove));
 
-        return oppMove;
-    }
-
-    private Action getMeta(String metastrategy, Action oppMove) {
-        Action recommendedMove;
-
-        switch (metastrategy) {
-            case "m0":
-                recommendedMove = m0(oppMove);
-                break;
-            case "m1":
-                recommendedMove = m1(oppMove);
-                break;
-            case "m2":
-                recommendedMove = m2(oppMove);
-                break;
-            case "m3":
-                recommendedMove = m3(oppMove);
-                break;
-            case "m4":
-                recommendedMove = m4(oppMove);
-                break;
-            default:
-                recommendedMove = oppMove;
-                break;
+        opponentMoveHistory.add(move);
+        opponentFrequencies.record(move);
+        int size = opponentMoveHistory.size();
+        if (size >= 2) {
+            updateMarkovChain(opponentMoveHistory.get(size - 2), move);
+            updateAdvancedMarkovChain(opponentMoveHistory.get(size - 2), botMoveHistory.get(size - 2), move);
         }
-        return recommendedMove;
     }
 
     private void initializeMarkovChain() {
-        markovChain = new HashMap<>();
+        markovChain = new int[ACTIONS.length][ACTIONS.length];
+        markovPrediction = new int[ACTIONS.length];
+    }
 
-        for (Action currentMove : Action.values()) {
-            markovChain.put(currentMove, new HashMap<>());
-            for (Action nextMove : Action.values()) {
-                markovChain.get(currentMove).put(nextMove, 0);
-            }
+    private void updateMarkovChain(Action currentMove, Action nextMove) {
+        int[] transitions = markovChain[currentMove.ordinal()];
+        int next = nextMove.ordinal();
+        transitions[next]++;
+
+        // Counts only ever grow, so the row maximum can only move to this entry
+        int current = currentMove.ordinal();
+        if (transitions[next] > transitions[markovPrediction[current]]) {
+            markovPrediction[current] = next;
         }
     }
 
     private void initializeAdvancedMarkovChain() {
-        advancedMarkovChain = new HashMap<>();
-
-        for (Action opponentMove : Action.values()) {
-            for (Action botMove : Action.values()) {
-                List<Action> state = Arrays.asList(opponentMove, botMove);
-                advancedMarkovChain.put(state, new HashMap<>());
-                for (Action nextMove : Action.values()) {
-                    advancedMarkovChain.get(state).put(nextMove, 0);
-                }
-            }
-        }
+        advancedMarkovChain = new int[ACTIONS.length * ACTIONS.length][ACTIONS.length];
+        advancedMarkovPrediction = new int[ACTIONS.length * ACTIONS.length];
     }
 
-    private void initializeScoreTable() {
-        scoreTable = new HashMap<>();
-        for (String strategy : strategies) {
-            Map<String, Integer> scores = new HashMap<>();
-            for (String metastrategy : metastrategies) {
-                scores.put(metastrategy, 0);
-            }
-            scoreTable.put(strategy, scores);
+    private static int jointState(Action opponentMove, Action botMove) {
+        return opponentMove.ordinal() * ACTIONS.length + botMove.ordinal();
+    }
+
+    private void updateAdvancedMarkovChain(Action opponentMove, Action botMove, Action nextOpponentMove) {
+        int state = jointState(opponentMove, botMove);
+        int[] transitions = advancedMarkovChain[state];
+        int next = nextOpponentMove.ordinal();
+        transitions[next]++;
+
+        if (transitions[next] > transitions[advancedMarkovPrediction[state]]) {
+            advancedMarkovPrediction[state] = next;
         }
     }
 
-    private void addScore(String strategy, String metastrategy, int points) {
-        Map<String, Integer> scores = scoreTable.get(strategy);
-        if (scores != null) {
-            int currentScore = scores.getOrDefault(metastrategy, 0);
-            scores.put(metastrategy, currentScore + points);
+    private void initializeScoreTable() {
+        scoreTable = new int[STRATEGIES.length][METASTRATEGIES.length];
+        if (scoring == Scoring.WINDOWED) {
+            scoreDeltas = new byte[SCORE_WINDOW * STRATEGIES.length * METASTRATEGIES.length];
+            scoreWindowPosition = 0;
         }
     }
 
-    private void updateScoreTable() { // TODO: change scoring system to introduce locality
-        for (String strategy : strategies) {
-            for (String metastrategy : metastrategies) {
+    private void updateScoreTable() {
+        // Only the results of recent rounds count, so the scores follow an
+        // opponent that changes its behaviour. Both modes cost O(1) per pair.
+        int slot = scoreWindowPosition * STRATEGIES.length * METASTRATEGIES.length;
+        for (int strategy = 0; strategy < STRATEGIES.length; strategy++) {
+            int[] scores = scoreTable[strategy];
+            for (int metastrategy = 0; metastrategy < METASTRATEGIES.length; metastrategy++, slot++) {
                 Action botMove = getRecommendedMove(strategy, metastrategy);
 
-                if (beats.get(botMove).contains(lastOpponentMove)) {
+                int delta;
+                int outcome = Outcomes.outcome(botMove, lastOpponentMove);
+                if (outcome == Outcomes.WIN) {
                     // Bot wins against opponent's last move
-                    addScore(strategy, metastrategy, 2);
-                } else if (beatenBy.get(botMove).contains(lastOpponentMove)) {
+                    delta = 2;
+                } else if (outcome == Outcomes.LOSS) {
                     // Bot loses against opponent's last move
-                    addScore(strategy, metastrategy, -2);
-                    lossStreak += 1;
-                    if (lossStreak == 3) {
-                        initializeScoreTable();
-                    }
+                    delta = -2;
                 } else {
                     // It's a draw
-                    addScore(strategy, metastrategy, -1);
+                    delta = -1;
                 }
-            }
-        }
-    }
-
-    private int getScore(String strategy, String metastrategy) {
-        Map<String, Integer> scores = scoreTable.get(strategy);
-        if (scores != null) {
-            return scores.getOrDefault(metastrategy, 0);
-        }
-        return 0;
-    }
 
-    // Metastrategy methods begin from here
-    private Action findCommonMove(List<Action> list1, List<Action> list2) {
-        for (Action commonAction : list1) {
-            if (list2.contains(commonAction)) {
-                return commonAction;
+                if (scoring == Scoring.WINDOWED) {
+                    // Add this round and drop the one that slides out of the window
+                    scores[metastrategy] += delta - scoreDeltas[slot];
+                    scoreDeltas[slot] = (byte) delta;
+                } else {
+                    int score = scores[metastrategy];
+                    scores[metastrategy] = score - (score >> DECAY_SHIFT) + (delta << SCORE_FRACTION_BITS);
+                }
             }
         }
-        return null; // No common move found
+        scoreWindowPosition = (scoreWindowPosition + 1) % SCORE_WINDOW;
     }
 
+    // Metastrategy methods begin from here
     private Action determineInfrequentMove(Action move1, Action move2) {
-        int countMove1 = Collections.frequency(botMoveHistory, move1);
-        int countMove2 = Collections.frequency(botMoveHistory, move2);
+        int countMove1 = botMoveCounts[move1.ordinal()];
+        int countMove2 = botMoveCounts[move2.ordinal()];
 
         if (countMove1 < countMove2) {
             return move1;
@@ -253,75 +255,26 @@ public class MasterBot2 implements RoShamBot {
     }
 
     private Action m0(Action move) {
-        List<Action> moveChoices = beatenBy.get(move);
-
-        Action option1 = moveChoices.get(0);
-        Action option2 = moveChoices.get(1);
+        Action option1 = Outcomes.counter(move, 0);
+        Action option2 = Outcomes.counter(move, 1);
 
         Action betterMove = determineInfrequentMove(option1, option2);
 
         return betterMove;
     }
 
-    private Action m1(Action move) {
-        // Beat m0's counter-strategy
-        Action strategy = m0(move);
-        Action oppResponse1 = beatenBy.get(strategy).get(0);
-        Action oppResponse2 = beatenBy.get(strategy).get(1);
-
-        List<Action> beatOppResponse1 = beatenBy.get(oppResponse1);
-        List<Action> beatOppResponse2 = beatenBy.get(oppResponse2);
-
-        Action commonMove = findCommonMove(beatOppResponse1, beatOppResponse2);
+    private Action counterMeta(Action previous, Action move) {
+        // Beat the opponent's counter-strategy to the previous metastrategy,
+        // so that m1 = counterMeta(m0), m2 = counterMeta(m1) and so on
+        Action commonMove = Outcomes.counterToCounters(previous);
 
         // If a common move is found, return it; otherwise, return the original move
         return (commonMove != null) ? commonMove : move;
     }
 
-    private Action m2(Action move) {
-        Action strategy = m1(move);
-        Action oppResponse1 = beatenBy.get(strategy).get(0);
-        Action oppResponse2 = beatenBy.get(strategy).get(1);
-
-        List<Action> beatOppResponse1 = beatenBy.get(oppResponse1);
-        List<Action> beatOppResponse2 = beatenBy.get(oppResponse2);
-
-        Action commonMove = findCommonMove(beatOppResponse1, beatOppResponse2);
-
-        return (commonMove != null) ? commonMove : move;
-    }
-
-    private Action m3(Action move) {
-        Action strategy = m2(move);
-        Action oppResponse1 = beatenBy.get(strategy).get(0);
-        Action oppResponse2 = beatenBy.get(strategy).get(1);
-
-        List<Action> beatOppResponse1 = beatenBy.get(oppResponse1);
-        List<Action> beatOppResponse2 = beatenBy.get(oppResponse2);
-
-        Action commonMove = findCommonMove(beatOppResponse1, beatOppResponse2);
-
-        return (commonMove != null) ? commonMove : move;
-    }
-
-    private Action m4(Action move) {
-        Action strategy = m3(move);
-        Action oppResponse1 = beatenBy.get(strategy).get(0);
-        Action oppResponse2 = beatenBy.get(strategy).get(1);
-
-        List<Action> beatOppResponse1 = beatenBy.get(oppResponse1);
-        List<Action> beatOppResponse2 = beatenBy.get(oppResponse2);
-
-        Action commonMove = findCommonMove(beatOppResponse1, beatOppResponse2);
-
-        return (commonMove != null) ? commonMove : move;
-    }
-
     // Strategy methods begin from here
     private Action randomAction() {
-        Random random = new Random();
-        int index = random.nextInt(Action.values().length);
-        return Action.values()[index];
+        return random.nextAction();
     }
 
     private Action repeat() {
@@ -359,198 +312,67 @@ public class MasterBot2 implements RoShamBot {
     }
 
     private Action pi() {
-        BigDecimal pi = new BigDecimal(Math.PI).setScale(this.getRoundsPlayed() + 1, RoundingMode.DOWN);
-        int piDigit = pi.remainder(BigDecimal.ONE).movePointRight(pi.scale()).intValue();
+        // Digit of pi corresponding to the current move number
+        int piDigit = PI_DIGITS.digit(this.getRoundsPlayed());
 
         // Use the modulus of the pi digit to choose from actions
-        Action[] allActions = Action.values();
-        int actionIndex = piDigit % allActions.length;
-
-        return allActions[actionIndex];
+        return ACTIONS[piDigit % ACTIONS.length];
     }
 
     public Action e() {
-        // Calculate the digit of 'e' corresponding to the current move number
-        BigDecimal e = new BigDecimal(Math.E, MathContext.DECIMAL128).setScale(this.getRoundsPlayed() + 1,
-                RoundingMode.DOWN);
-        int eDigit = e.remainder(BigDecimal.ONE).movePointRight(e.scale()).intValue();
+        // Digit of 'e' corresponding to the current move number
+        int eDigit = E_DIGITS.digit(this.getRoundsPlayed());
 
         // Use the modulus of the 'e' digit to choose from actions
-        Action[] allActions = Action.values();
-        int actionIndex = eDigit % allActions.length;
-
-        return allActions[actionIndex];
+        return ACTIONS[eDigit % ACTIONS.length];
     }
 
-    private Action frequencyCounter() {
-        // Check if there are previous moves in the opponent's history
-        if (!opponentMoveHistory.isEmpty()) {
-            Map<Action, Integer> moveCounts = new HashMap<>();
-
-            // Count the frequency of each move in the opponent's history
-            for (Action opponentMove : opponentMoveHistory) {
-                moveCounts.put(opponentMove, moveCounts.getOrDefault(opponentMove, 0) + 1);
-            }
-
-            // Find the moves with the highest frequency
-            List<Action> mostFrequentMoves = new ArrayList<>();
-            int maxCount = 0;
-            for (Map.Entry<Action, Integer> entry : moveCounts.entrySet()) {
-                int count = entry.getValue();
-                if (count > maxCount) {
-                    mostFrequentMoves.clear();
-                    mostFrequentMoves.add(entry.getKey());
-                    maxCount = count;
-                } else if (count == maxCount) {
-                    mostFrequentMoves.add(entry.getKey());
-                }
-            }
-
-            // Break ties randomly
-            if (!mostFrequentMoves.isEmpty()) {
-                Random random = new Random();
-                return mostFrequentMoves.get(random.nextInt(mostFrequentMoves.size()));
-            }
+    private Action frequencyCounter(int horizon) {
+        // Most frequent opponent move within the horizon, ties broken randomly
+        Action mostFrequentMove = opponentFrequencies.mostFrequent(horizon, random);
+        if (mostFrequentMove != null) {
+            return mostFrequentMove;
         }
         // If there's no history, return a random move
         return randomAction();
     }
 
     private Action historyMatching() {
-        int[] sequenceLengths = { 100 };
-        Map<List<Action>, Map<Action, Integer>> sequenceCounts = new HashMap<>();
-
-        for (int length : sequenceLengths) {
-            if (opponentMoveHistory.size() >= length) {
-                List<Action> lastSequence = opponentMoveHistory.subList(opponentMoveHistory.size() - length,
-                        opponentMoveHistory.size());
-
-                // Iterate over all possible sequences of the specified length in the opponent's
-                // move history
-                for (int i = 0; i < opponentMoveHistory.size() - length; i++) {
-                    List<Action> sequence = opponentMoveHistory.subList(i, i + length);
-
-                    if (sequence.equals(lastSequence)) {
-                        Action nextMove = opponentMoveHistory.get(i + length);
-
-                        // Update the count for the next move following the current sequence
-                        sequenceCounts.computeIfAbsent(sequence, k -> new HashMap<>());
-                        Map<Action, Integer> nextMoveCounts = sequenceCounts.get(sequence);
-                        nextMoveCounts.put(nextMove, nextMoveCounts.getOrDefault(nextMove, 0) + 1);
-                    }
-                }
-            }
-        }
-        // So far the code creates a hashmap of key: sequences, and value:
-        // (action,count) hashmaps
-
-        // Naively record total number of each move occurances over nextMoveCount. FIX
-        // ME
-        Map<Action, Integer> mostCommonNextMoveCounts = new HashMap<>();
-        for (Map<Action, Integer> counts : sequenceCounts.values()) {
-            for (Map.Entry<Action, Integer> entry : counts.entrySet()) {
-                Action nextMove = entry.getKey();
-                int count = entry.getValue();
-                mostCommonNextMoveCounts.put(nextMove, mostCommonNextMoveCounts.getOrDefault(nextMove, 0) + count);
-            }
-        }
-
-        // Find the most common next move
-        Action mostCommonNextMove = null;
-        int maxCount = 0;
-        for (Map.Entry<Action, Integer> entry : mostCommonNextMoveCounts.entrySet()) {
-            int count = entry.getValue();
-            if (count > maxCount) {
-                mostCommonNextMove = entry.getKey();
-                maxCount = count;
+        // Every earlier occurrence of the last HISTORY_LENGTH opponent moves has
+        // already been indexed by updateOpponentHistory, together with the move
+        // that followed it
+        if (historyHash.isFull()) {
+            Action mostCommonNextMove = historyIndex.mostFrequent(historyHash.value());
+            if (mostCommonNextMove != null) {
+                return mostCommonNextMove;
             }
         }
 
-        if (mostCommonNextMove != null) {
-            return mostCommonNextMove;
-        }
-
         // If no history match is found, default to random move
         return randomAction();
     }
 
     private Action pairHistory() {
-        // Hardcoded list of sequence lengths to check against
-        List<Integer> sequenceLengths = List.of(100); // Add sequence lengths as needed
-
-        Map<Action, Integer> nextMoveCounts = new HashMap<>();
-        int maxCount = 0;
-        Action mostCommonNextMove = null;
-        boolean tieDetected = false;
-
-        for (Integer sequenceLength : sequenceLengths) {
-            if (getRoundsPlayed() >= sequenceLength) {
-                List<Action> lastOpponentSequence = opponentMoveHistory
-                        .subList(opponentMoveHistory.size() - sequenceLength, opponentMoveHistory.size());
-                List<Action> lastBotSequence = botMoveHistory.subList(botMoveHistory.size() - sequenceLength,
-                        botMoveHistory.size());
-
-                for (int i = 0; i < getRoundsPlayed() - sequenceLength; i++) {
-                    List<Action> opponentSequence = opponentMoveHistory.subList(i, i + sequenceLength);
-                    List<Action> mySequence = botMoveHistory.subList(i, i + sequenceLength);
-
-                    // if a match between both sequences is found
-                    if (opponentSequence.equals(lastOpponentSequence) && mySequence.equals(lastBotSequence)) {
-                        int nextMoveIndex = i + sequenceLength;
-
-                        Action nextMove = opponentMoveHistory.get(nextMoveIndex);
-                        nextMoveCounts.put(nextMove, nextMoveCounts.getOrDefault(nextMove, 0) + 1);
-
-                        // Update the most common next move if this one is more common
-                        int count = nextMoveCounts.get(nextMove);
-                        if (count > maxCount) {
-                            maxCount = count;
-                            mostCommonNextMove = nextMove;
-                        }
-                    }
-                }
-            }
-
-            // if a match is already found, this executes
+        // Earlier occurrences of the last HISTORY_LENGTH rounds, matched on both
+        // players' moves, are indexed by updateOpponentHistory. Of equally
+        // common next moves, the one seen most often first is preferred.
+        if (pairHash.isFull()) {
+            Action mostCommonNextMove = pairIndex.mostFrequent(pairHash.value());
             if (mostCommonNextMove != null) {
-                // Check for ties after the loop
-                for (Action move : nextMoveCounts.keySet()) {
-                    if (nextMoveCounts.get(move) == maxCount && !move.equals(mostCommonNextMove)) {
-                        tieDetected = true;
-                    }
-                }
-                if (!tieDetected) {
-                    return mostCommonNextMove;
-                } else {
-                    tieDetected = false;
-                }
+                return mostCommonNextMove;
             }
         }
-        if (mostCommonNextMove != null) {
-            return mostCommonNextMove;
-        }
         // No matches found
         return randomAction();
     }
 
     private Action markovChain() {
         if (getRoundsPlayed() >= 2) {
-            for (int i = 0; i < opponentMoveHistory.size() - 1; i++) {
-                Action currentMove = opponentMoveHistory.get(i);
-                Action nextMove = opponentMoveHistory.get(i + 1);
-
-                int count = markovChain.get(currentMove).get(nextMove);
-                markovChain.get(currentMove).put(nextMove, count + 1);
-            }
-
+            // The chain is kept up to date by updateOpponentHistory
             Action lastMove = opponentMoveHistory.get(opponentMoveHistory.size() - 1);
-            Map<Action, Integer> transitions = markovChain.get(lastMove);
 
-            if (!transitions.isEmpty()) {
-                // Choose the next move based on the most likely transition
-                Action predictedMove = Collections.max(transitions.entrySet(), Map.Entry.comparingByValue()).getKey();
-                return predictedMove;
-            }
+            // Choose the next move based on the most likely transition
+            return ACTIONS[markovPrediction[lastMove.ordinal()]];
         }
         // Default to a random move if no history or transitions are available
         return randomAction();
@@ -558,44 +380,29 @@ public class MasterBot2 implements RoShamBot {
 
     private Action advancedMarkovChain() {
         if (getRoundsPlayed() >= 2) {
-            for (int i = 0; i < opponentMoveHistory.size() - 1 && i < botMoveHistory.size() - 1; i++) {
-                Action currentOpponentMove = opponentMoveHistory.get(i);
-                Action currentBotMove = botMoveHistory.get(i);
-                Action nextOpponentMove = opponentMoveHistory.get(i + 1);
-
-                List<Action> currentState = Arrays.asList(currentOpponentMove, currentBotMove);
-
-                int count = advancedMarkovChain.get(currentState).get(nextOpponentMove);
-                advancedMarkovChain.get(currentState).put(nextOpponentMove, count + 1);
-            }
-
+            // The chain is kept up to date by updateOpponentHistory
             Action lastBotMove = botMoveHistory.get(botMoveHistory.size() - 1);
-            List<Action> lastState = Arrays.asList(lastOpponentMove, lastBotMove);
-
-            Map<Action, Integer> opponentTransitions = advancedMarkovChain.get(lastState);
-            if (!opponentTransitions.isEmpty()) {
-                // Choose the next opponent move based on the most likely transition
-                Action predictedOpponentMove = Collections
-                        .max(opponentTransitions.entrySet(), Map.Entry.comparingByValue()).getKey();
-                return predictedOpponentMove;
-            }
+
+            // Choose the next opponent move based on the most likely transition
+            return ACTIONS[advancedMarkovPrediction[jointState(lastOpponentMove, lastBotMove)]];
         }
         // Default to a random move if no history or transitions are available
         return randomAction();
     }
 
-    private Action iocainePowder() {
-        return randomAction();
-    }
-
     // main function methods begin from here
     private Action findBestMove() {
-        for (String strategy : strategies) {
-            Action oppMove = getPrediction(strategy);
-            for (String metastrategy : metastrategies) {
-                // Store the moves recommended by each strategy-meta pair this round
-                Action recommendedMove = getMeta(metastrategy, oppMove);
-                rememberRecommendedMove(strategy, metastrategy, recommendedMove);
+        for (int strategy = 0; strategy < STRATEGIES.length; strategy++) {
+            Action oppMove = predictors[strategy].predict();
+
+            // Store the moves recommended by each strategy-meta pair this round,
+            // each metastrategy building on the one before it
+            byte[] recommended = recommendedMoves[strategy];
+            Action recommendedMove = m0(oppMove);
+            recommended[0] = (byte) recommendedMove.ordinal();
+            for (int metastrategy = 1; metastrategy < METASTRATEGIES.length; metastrategy++) {
+                recommendedMove = counterMeta(recommendedMove, oppMove);
+                recommended[metastrategy] = (byte) recommendedMove.ordinal();
             }
         }
 
@@ -604,13 +411,14 @@ public class MasterBot2 implements RoShamBot {
             return randomAction();
         }
 
-        String bestStrategy = null;
-        String bestMeta = null;
+        int bestStrategy = -1;
+        int bestMeta = -1;
         int maxScore = Integer.MIN_VALUE;
 
-        for (String strategy : strategies) {
-            for (String metastrategy : metastrategies) {
-                int score = getScore(strategy, metastrategy);
+        for (int strategy = 0; strategy < STRATEGIES.length; strategy++) {
+            int[] scores = scoreTable[strategy];
+            for (int metastrategy = 0; metastrategy < METASTRATEGIES.length; metastrategy++) {
+                int score = scores[metastrategy];
 
                 if (score > maxScore) {
                     // Update if a higher score is found
@@ -619,7 +427,6 @@ public class MasterBot2 implements RoShamBot {
                     bestMeta = metastrategy;
                 } else if (score == maxScore) {
                     // Break ties pseudo-randomly
-                    Random random = new Random();
                     if (random.nextBoolean()) {
                         bestStrategy = strategy;
                         bestMeta = metastrategy;
@@ -628,13 +435,8 @@ public class MasterBot2 implements RoShamBot {
             }
         }
         // Choose the move based on the best strategy and metastrategy
-        if (bestStrategy != null && bestMeta != null) {
-            usedStrategy = bestStrategy;
-            return getRecommendedMove(bestStrategy, bestMeta);
-        } else {
-            // If no strategy or metastrategy is found, return a random move
-            return randomAction();
-        }
+        usedStrategy = STRATEGIES[bestStrategy].label;
+        return getRecommendedMove(bestStrategy, bestMeta);
     }
 
     @Override
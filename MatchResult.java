@@ -0,0 +1,66 @@
+
+/** Immutable summary of a batch of rounds played between two bots.
+  *
+  * Wins and losses are reported from the point of view of player 1.
+  */
+public final class MatchResult {
+
+    private final long wins;
+    private final long ties;
+    private final long losses;
+    private final long elapsedNanos;
+
+    /** Creates a new result.
+      *
+      * @param wins the number of rounds won by player 1.
+      * @param ties the number of tied rounds.
+      * @param losses the number of rounds won by player 2.
+      * @param elapsedNanos wall-clock time taken to play the rounds.
+      */
+    public MatchResult(long wins, long ties, long losses, long elapsedNanos) {
+        this.wins = wins;
+        this.ties = ties;
+        this.losses = losses;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /** Returns the number of rounds won by player 1. */
+    public long getWins() {
+        return this.wins;
+    }
+
+    /** Returns the number of tied rounds. */
+    public long getTies() {
+        return this.ties;
+    }
+
+    /** Returns the number of rounds won by player 2. */
+    public long getLosses() {
+        return this.losses;
+    }
+
+    /** Returns the total number of rounds played. */
+    public long getRounds() {
+        return this.wins + this.ties + this.losses;
+    }
+
+    /** Returns the wall-clock time taken to play the rounds, in nanoseconds. */
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+
+    /** Returns the throughput of the match in rounds per second, or 0 if no
+      * time was measured.
+      */
+    public double getRoundsPerSecond() {
+        if (this.elapsedNanos <= 0)
+            return 0.0;
+        return getRounds() * 1e9 / this.elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "MatchResult[wins=" + this.wins + ", ties=" + this.ties +
+               ", losses=" + this.losses + ", elapsedNanos=" + this.elapsedNanos + "]";
+    }
+}
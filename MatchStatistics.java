@@ -0,0 +1,227 @@
+
+import java.util.Arrays;
+
+/** Incremental statistics on both players' move histories in a match, from
+  * which frequency and history-matching predictions over several horizons
+  * can be read in constant time.
+  *
+  * For each player and each horizon (e.g. the last 5, 10 or 100 moves, or
+  * all moves) the store answers two questions: which move was most frequent
+  * within the horizon, and which move followed the most recent earlier
+  * occurrence of the longest context, up to {@link #MAX_MATCH} moves, that
+  * also lies within the horizon.
+  *
+  * Frequencies are running counts (see {@link MoveFrequencies}). For history
+  * matching, each context is packed exactly into a long and mapped to where
+  * it last occurred and what followed it, so recording a round costs
+  * O(MAX_MATCH) table operations and O(MAX_MATCH) per horizon to refresh the
+  * predictions, regardless of match length.
+  *
+  * Every context is remembered for the whole match. Short contexts each
+  * have a slot of their own in a flat table; longer ones are kept in an
+  * open-addressing table that checks the full key and grows as new contexts
+  * appear, so its memory grows with the number of distinct long contexts
+  * seen: at most {@code MAX_MATCH - 7} per round and player, about 16 to 32
+  * bytes each.
+  */
+public final class MatchStatistics {
+
+    /** Index of the opponent's history. */
+    public static final int OPPONENT = 0;
+    /** Index of this bot's own history. */
+    public static final int SELF = 1;
+
+    /** Longest context, in moves, that history matching looks for. */
+    public static final int MAX_MATCH = 16;
+
+    private static final Action[] ACTIONS = Action.values();
+    private static final int EXACT_LENGTH = 7; // longest context with a slot of its own
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final int[] EXACT_OFFSETS = new int[EXACT_LENGTH + 2]; // first slot of each length
+    static {
+        int contexts = 1;
+        for (int length = 1; length <= EXACT_LENGTH; length++) {
+            contexts *= 5;
+            EXACT_OFFSETS[length + 1] = EXACT_OFFSETS[length] + contexts;
+        }
+    }
+    private static final long CONTEXT_MODULUS = 152587890625L; // 5^MAX_MATCH
+
+    private final int[] horizons;
+    private final MoveFrequencies[] frequencies;
+    private final long[][] exactValues; // [player][offset + context] (position + 1) << 3 | move, 0 if unseen
+    private final long[][] contextKeys; // [player][slot], 0 if empty
+    private final long[][] contextValues; // [player][slot] position of the following move << 3 | move
+    private final int[] contextCounts; // [player] contexts in the table
+    private final long[] recentContext; // last MAX_MATCH moves of each player in base 5, latest lowest
+    private final int[][] predictions; // [player][horizon] history-matching prediction, -1 if none
+    private final long[] matchPositions; // scratch space for refreshing the predictions
+    private final int[] matchMoves;
+    private long rounds;
+
+    /** Creates empty statistics over the given horizons.
+      *
+      * @param horizons the window lengths to predict over;
+      *        {@link MoveFrequencies#ALL_TIME} for an unbounded window.
+      */
+    public MatchStatistics(int... horizons) {
+        this.horizons = horizons.clone();
+        this.frequencies = new MoveFrequencies[] { new MoveFrequencies(horizons), new MoveFrequencies(horizons) };
+        this.exactValues = new long[2][EXACT_OFFSETS[EXACT_LENGTH + 1]];
+        this.contextKeys = new long[2][INITIAL_CAPACITY];
+        this.contextValues = new long[2][INITIAL_CAPACITY];
+        this.contextCounts = new int[2];
+        this.recentContext = new long[2];
+        this.predictions = new int[2][horizons.length];
+        for (int[] player : this.predictions)
+            Arrays.fill(player, -1);
+        this.matchPositions = new long[MAX_MATCH + 1];
+        this.matchMoves = new int[MAX_MATCH + 1];
+    }
+
+    /** Returns the number of horizons. */
+    public int getHorizonCount() {
+        return this.horizons.length;
+    }
+
+    /** Returns the number of rounds recorded. */
+    public long getRounds() {
+        return this.rounds;
+    }
+
+    /** Records the moves both players made in one round. */
+    public void record(Action opponentMove, Action ownMove) {
+        update(OPPONENT, opponentMove);
+        update(SELF, ownMove);
+        this.rounds++;
+        refresh(OPPONENT);
+        refresh(SELF);
+    }
+
+    private static long key(int length, long context) {
+        return context * 32 + length; // never 0, as length >= 1
+    }
+
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        return (int) (key ^ (key >>> 33));
+    }
+
+    /** Returns the slot holding the given key, or the empty slot it would go in. */
+    private static int slotOf(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void put(int player, long key, long value) {
+        if (4 * (this.contextCounts[player] + 1) > 3 * this.contextKeys[player].length)
+            grow(player);
+        long[] keys = this.contextKeys[player];
+        int slot = slotOf(keys, key);
+        if (keys[slot] == 0) {
+            keys[slot] = key;
+            this.contextCounts[player]++;
+        }
+        this.contextValues[player][slot] = value;
+    }
+
+    private void grow(int player) {
+        long[] oldKeys = this.contextKeys[player];
+        long[] oldValues = this.contextValues[player];
+        long[] keys = new long[oldKeys.length * 2];
+        long[] values = new long[keys.length];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slotOf(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+        this.contextKeys[player] = keys;
+        this.contextValues[player] = values;
+    }
+
+    private void update(int player, Action move) {
+        this.frequencies[player].record(move);
+
+        // Every context that ends with the previous move is now followed by
+        // this one; only the latest occurrence of each context is kept
+        long context = this.recentContext[player];
+        long value = (this.rounds << 3) | move.ordinal();
+        long[] exact = this.exactValues[player];
+        long modulus = 1;
+        for (int length = 1; length <= MAX_MATCH && length <= this.rounds; length++) {
+            modulus *= 5;
+            if (length <= EXACT_LENGTH)
+                exact[EXACT_OFFSETS[length] + (int) (context % modulus)] = value + (1 << 3);
+            else
+                put(player, key(length, context % modulus), value);
+        }
+        this.recentContext[player] = (context * 5 + move.ordinal()) % CONTEXT_MODULUS;
+    }
+
+    private void refresh(int player) {
+        // Where the current contexts of each length last occurred
+        long context = this.recentContext[player];
+        long[] exact = this.exactValues[player];
+        long[] keys = this.contextKeys[player];
+        long[] values = this.contextValues[player];
+        long modulus = 1;
+        int longest = (int) Math.min(MAX_MATCH, this.rounds);
+        for (int length = 1; length <= longest; length++) {
+            modulus *= 5;
+            if (length <= EXACT_LENGTH) {
+                long value = exact[EXACT_OFFSETS[length] + (int) (context % modulus)];
+                this.matchPositions[length] = (value >>> 3) - 1; // -1 if unseen
+                this.matchMoves[length] = (int) (value & 7);
+            } else {
+                long key = key(length, context % modulus);
+                int slot = slotOf(keys, key);
+                this.matchPositions[length] = (keys[slot] == key) ? values[slot] >>> 3 : -1;
+                this.matchMoves[length] = (int) (values[slot] & 7);
+            }
+        }
+
+        // For each horizon, the longest context whose occurrence lies within it
+        int[] prediction = this.predictions[player];
+        for (int h = 0; h < this.horizons.length; h++) {
+            int horizon = this.horizons[h];
+            prediction[h] = -1;
+            for (int length = longest; length >= 1; length--) {
+                long position = this.matchPositions[length];
+                if (position >= 0 && (horizon == MoveFrequencies.ALL_TIME
+                                      || position - length >= this.rounds - horizon)) {
+                    prediction[h] = this.matchMoves[length];
+                    break;
+                }
+            }
+        }
+    }
+
+    /** Returns a player's most frequent move within the given horizon,
+      * breaking ties uniformly at random, or null if nothing was recorded.
+      *
+      * @param player {@link #OPPONENT} or {@link #SELF}.
+      * @param horizonIndex the position of the horizon in the constructor.
+      * @param random the source used to break ties.
+      */
+    public Action mostFrequent(int player, int horizonIndex, RandomSource random) {
+        return this.frequencies[player].mostFrequent(horizonIndex, random);
+    }
+
+    /** Returns the move a player made after the most recent earlier
+      * occurrence of their longest current context that lies within the
+      * given horizon, or null if there is none.
+      *
+      * @param player {@link #OPPONENT} or {@link #SELF}.
+      * @param horizonIndex the position of the horizon in the constructor.
+      */
+    public Action historyMatch(int player, int horizonIndex) {
+        int move = this.predictions[player][horizonIndex];
+        return (move < 0) ? null : ACTIONS[move];
+    }
+}
@@ -3,7 +3,9 @@
   * 
   * @author RR
   */
-public class MixedBot implements RoShamBot {
+public class MixedBot implements RandomizedBot {
+    
+    private RandomSource random = new RandomSource();
  
     /** Returns an action according to the mixed strategy (0.5, 0.5, 0, 0, 0).
       * 
@@ -12,7 +14,7 @@ public class MixedBot implements RoShamBot {
       * @return the next action to play.
       */
     public Action getNextMove(Action lastOpponentMove) {
-        double coinFlip = Math.random();
+        double coinFlip = this.random.nextDouble();
         
         if (coinFlip <= 0.5)
             return Action.ROCK;
@@ -20,4 +22,9 @@ public class MixedBot implements RoShamBot {
             return Action.PAPER;
     }
     
+    @Override
+    public void setRandomSource(RandomSource random) {
+        this.random = random;
+    }
+    
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+
+/** Running counts of each action over several horizons of a move history at
+  * once, e.g. the last 10, 100 and 1000 moves and all moves.
+  *
+  * Moves are kept in a ring buffer as long as the longest finite horizon.
+  * Recording a move adds it to every horizon and removes from each finite
+  * horizon the move that just fell out of it, so an update costs one step
+  * per horizon and memory is fixed regardless of match length.
+  */
+public final class MoveFrequencies {
+
+    /** Horizon value meaning "every move ever recorded". */
+    public static final int ALL_TIME = 0;
+
+    private static final Action[] ACTIONS = Action.values();
+
+    private final int[] horizons;
+    private final int[][] counts; // counts[horizon index][action]
+    private final byte[] ring; // the most recent moves, by ordinal
+    private long recorded;
+
+    /** Creates empty counts over the given horizons.
+      *
+      * @param horizons the window lengths to count over; {@link #ALL_TIME}
+      *        for an unbounded window.
+      */
+    public MoveFrequencies(int... horizons) {
+        int longest = 1;
+        for (int horizon : horizons) {
+            if (horizon < 0)
+                throw new IllegalArgumentException("negative horizon: " + horizon);
+            longest = Math.max(longest, horizon);
+        }
+        this.horizons = horizons.clone();
+        this.counts = new int[horizons.length][ACTIONS.length];
+        this.ring = new byte[longest];
+    }
+
+    /** Returns the number of horizons. */
+    public int getHorizonCount() {
+        return this.horizons.length;
+    }
+
+    /** Adds a move to every horizon. */
+    public void record(Action move) {
+        int length = this.ring.length;
+        for (int h = 0; h < this.horizons.length; h++) {
+            int horizon = this.horizons[h];
+            this.counts[h][move.ordinal()]++;
+            if (horizon != ALL_TIME && this.recorded >= horizon) {
+                // The move recorded horizon steps ago is still in the ring
+                this.counts[h][this.ring[(int) ((this.recorded - horizon) % length)]]--;
+            }
+        }
+        this.ring[(int) (this.recorded % length)] = (byte) move.ordinal();
+        this.recorded++;
+    }
+
+    /** Returns the total number of moves recorded. */
+    public long getRecorded() {
+        return this.recorded;
+    }
+
+    /** Returns how often an action occurs within the given horizon.
+      *
+      * @param horizonIndex the position of the horizon in the constructor.
+      * @param action the action to count.
+      */
+    public int count(int horizonIndex, Action action) {
+        return this.counts[horizonIndex][action.ordinal()];
+    }
+
+    /** Returns the most frequent action within the given horizon, breaking
+      * ties uniformly at random, or null if nothing has been recorded.
+      *
+      * @param horizonIndex the position of the horizon in the constructor.
+      * @param random the source used to break ties.
+      */
+    public Action mostFrequent(int horizonIndex, RandomSource random) {
+        int[] window = this.counts[horizonIndex];
+        int best = -1;
+        int bestCount = 0;
+        int ties = 0;
+        for (int a = 0; a < window.length; a++) {
+            if (window[a] > bestCount) {
+                best = a;
+                bestCount = window[a];
+                ties = 1;
+            } else if (window[a] == bestCount && bestCount > 0) {
+                // Keep each of the k tied actions with probability 1/k
+                ties++;
+                if (random.nextInt(ties) == 0)
+                    best = a;
+            }
+        }
+        return (best < 0) ? null : ACTIONS[best];
+    }
+}
@@ -3,7 +3,9 @@
   * 
   * @author RR
   */
-public class NashBot implements RoShamBot {
+public class NashBot implements RandomizedBot {
+    
+    private RandomSource random = new RandomSource();
  
     /** Returns an action according to the mixed strategy (1/3, 1/3, 1/3).
       * 
@@ -12,7 +14,7 @@ public class NashBot implements RoShamBot {
       * @return the next action to play.
       */
     public Action getNextMove(Action lastOpponentMove) {
-        double coinFlip = Math.random();
+        double coinFlip = this.random.nextDouble();
         
         if (coinFlip <= 1.0/5.0)
             return Action.ROCK;
@@ -26,4 +28,9 @@ public class NashBot implements RoShamBot {
             return Action.SPOCK;
     }
     
+    @Override
+    public void setRandomSource(RandomSource random) {
+        this.random = random;
+    }
+    
 }
\ No newline at end of file
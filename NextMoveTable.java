@@ -0,0 +1,167 @@
+
+import java.util.Arrays;
+
+/** Counts of the actions that followed each context of a move history, with
+  * contexts identified by a 64-bit hash.
+  *
+  * An open-addressing table with the counts for all five actions of a
+  * context stored next to each other in one flat array, so updates and
+  * lookups are a hash probe and an array access, with no boxing. Counts can
+  * also be taken back, e.g. as moves leave a sliding window, and contexts
+  * whose counts all drop to zero are removed so the table stays small.
+  */
+public final class NextMoveTable {
+
+    private static final Action[] ACTIONS = Action.values();
+    private static final int NUM_ACTIONS = ACTIONS.length;
+
+    private long[] keys;
+    private boolean[] used;
+    private int[] counts; // counts[slot * NUM_ACTIONS + action]
+    private byte[] leaders; // action that first reached the highest count of each slot
+    private int size;
+
+    /** Creates an empty table. */
+    public NextMoveTable() {
+        allocate(64);
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.used = new boolean[capacity];
+        this.counts = new int[capacity * NUM_ACTIONS];
+        this.leaders = new byte[capacity];
+        this.size = 0;
+    }
+
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        return (int) (key ^ (key >>> 33));
+    }
+
+    /** Returns the slot of the given context, or -1 if it was never seen. */
+    private int find(long key) {
+        int mask = this.keys.length - 1;
+        for (int slot = mix(key) & mask; this.used[slot]; slot = (slot + 1) & mask) {
+            if (this.keys[slot] == key)
+                return slot;
+        }
+        return -1;
+    }
+
+    /** Returns the slot of the given context, adding it if necessary. */
+    private int findOrInsert(long key) {
+        if (2 * (this.size + 1) > this.keys.length)
+            grow();
+        int mask = this.keys.length - 1;
+        int slot = mix(key) & mask;
+        for (; this.used[slot]; slot = (slot + 1) & mask) {
+            if (this.keys[slot] == key)
+                return slot;
+        }
+        this.used[slot] = true;
+        this.keys[slot] = key;
+        this.leaders[slot] = -1;
+        this.size++;
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = this.keys;
+        boolean[] oldUsed = this.used;
+        int[] oldCounts = this.counts;
+        byte[] oldLeaders = this.leaders;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = findOrInsert(oldKeys[i]);
+                System.arraycopy(oldCounts, i * NUM_ACTIONS, this.counts, slot * NUM_ACTIONS, NUM_ACTIONS);
+                this.leaders[slot] = oldLeaders[i];
+            }
+        }
+    }
+
+    /** Records that the given action followed the given context. */
+    public void increment(long context, Action next) {
+        int slot = findOrInsert(context); // may grow, so before touching counts
+        int base = slot * NUM_ACTIONS;
+        int count = ++this.counts[base + next.ordinal()];
+
+        // Only the incremented count can overtake the current leader
+        int leader = this.leaders[slot];
+        if (leader < 0 || count > this.counts[base + leader])
+            this.leaders[slot] = (byte) next.ordinal();
+    }
+
+    /** Takes back one earlier {@link #increment} of the given action after the
+      * given context. Does nothing if that action was never counted.
+      */
+    public void decrement(long context, Action next) {
+        int slot = find(context);
+        if (slot < 0)
+            return;
+        int base = slot * NUM_ACTIONS;
+        int action = next.ordinal();
+        if (this.counts[base + action] == 0)
+            return;
+        int count = --this.counts[base + action];
+
+        int total = 0;
+        for (int i = 0; i < NUM_ACTIONS; i++)
+            total += this.counts[base + i];
+        if (total == 0) {
+            remove(slot);
+            return;
+        }
+
+        // Only a decremented leader can be overtaken, and only by an action
+        // that now has a higher count; of those, the lowest most frequent one
+        if (this.leaders[slot] == action) {
+            int best = action;
+            for (int i = 0; i < NUM_ACTIONS; i++) {
+                if (this.counts[base + i] > this.counts[base + best])
+                    best = i;
+            }
+            this.leaders[slot] = (byte) best;
+        }
+    }
+
+    /** Frees a slot, shifting back later entries of the same probe run so
+      * lookups never stop at the hole.
+      */
+    private void remove(int slot) {
+        int mask = this.keys.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; this.used[next]; next = (next + 1) & mask) {
+            int home = mix(this.keys[next]) & mask;
+            // The entry may fill the hole only if that does not put it
+            // before its home slot
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                this.keys[hole] = this.keys[next];
+                System.arraycopy(this.counts, next * NUM_ACTIONS, this.counts, hole * NUM_ACTIONS, NUM_ACTIONS);
+                this.leaders[hole] = this.leaders[next];
+                hole = next;
+            }
+        }
+        this.used[hole] = false;
+        Arrays.fill(this.counts, hole * NUM_ACTIONS, (hole + 1) * NUM_ACTIONS, 0);
+        this.size--;
+    }
+
+    /** Returns how often the given action followed the given context. */
+    public int count(long context, Action next) {
+        int slot = find(context);
+        return (slot < 0) ? 0 : this.counts[slot * NUM_ACTIONS + next.ordinal()];
+    }
+
+    /** Returns the action that most often followed the given context, or null
+      * if nothing ever followed it. Of several equally frequent actions, the
+      * one that reached that count first wins, unless the leader has since
+      * been decremented.
+      */
+    public Action mostFrequent(long context) {
+        int slot = find(context);
+        return (slot < 0) ? null : ACTIONS[this.leaders[slot]];
+    }
+}
@@ -0,0 +1,100 @@
+
+/** Precomputed outcome tables for Rock-Paper-Scissors-Lizard-Spock.
+  *
+  * All tables are indexed by {@link Action#ordinal()} and built once, so
+  * deciding a round or looking up a counter-move is a single array access
+  * rather than a map lookup and list scan.
+  */
+public final class Outcomes {
+
+    public static final int WIN = 1;
+    public static final int TIE = 0;
+    public static final int LOSS = -1;
+
+    private static final Action[] ACTIONS = Action.values();
+    private static final int N = ACTIONS.length;
+
+    // VICTIMS[a] = the two actions that a beats, COUNTERS[a] = the two actions
+    // that beat a. The order of each pair is significant: bots use element 0
+    // as their default choice.
+    private static final Action[][] VICTIMS = new Action[N][];
+    private static final Action[][] COUNTERS = new Action[N][];
+
+    private static final int[] BEATS_MASK = new int[N]; // bit b set iff a beats b
+    private static final int[] OUTCOME = new int[N * N]; // [a * N + b] from a's view
+    private static final Action[] COMMON_COUNTER = new Action[N * N]; // [a * N + b]
+
+    static {
+        VICTIMS[Action.ROCK.ordinal()] = new Action[] { Action.SCISSORS, Action.LIZARD };
+        VICTIMS[Action.PAPER.ordinal()] = new Action[] { Action.ROCK, Action.SPOCK };
+        VICTIMS[Action.SCISSORS.ordinal()] = new Action[] { Action.PAPER, Action.LIZARD };
+        VICTIMS[Action.LIZARD.ordinal()] = new Action[] { Action.SPOCK, Action.PAPER };
+        VICTIMS[Action.SPOCK.ordinal()] = new Action[] { Action.SCISSORS, Action.ROCK };
+
+        COUNTERS[Action.ROCK.ordinal()] = new Action[] { Action.PAPER, Action.SPOCK };
+        COUNTERS[Action.PAPER.ordinal()] = new Action[] { Action.SCISSORS, Action.LIZARD };
+        COUNTERS[Action.SCISSORS.ordinal()] = new Action[] { Action.ROCK, Action.SPOCK };
+        COUNTERS[Action.LIZARD.ordinal()] = new Action[] { Action.ROCK, Action.SCISSORS };
+        COUNTERS[Action.SPOCK.ordinal()] = new Action[] { Action.PAPER, Action.LIZARD };
+
+        for (int a = 0; a < N; a++) {
+            for (Action victim : VICTIMS[a]) {
+                BEATS_MASK[a] |= 1 << victim.ordinal();
+            }
+        }
+
+        for (int a = 0; a < N; a++) {
+            for (int b = 0; b < N; b++) {
+                if ((BEATS_MASK[a] & (1 << b)) != 0)
+                    OUTCOME[a * N + b] = WIN;
+                else if ((BEATS_MASK[b] & (1 << a)) != 0)
+                    OUTCOME[a * N + b] = LOSS;
+                else
+                    OUTCOME[a * N + b] = TIE;
+
+                // First counter of a (in canonical order) that also beats b
+                for (Action candidate : COUNTERS[a]) {
+                    if ((BEATS_MASK[candidate.ordinal()] & (1 << b)) != 0) {
+                        COMMON_COUNTER[a * N + b] = candidate;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private Outcomes() {
+    }
+
+    /** Returns true if action a defeats action b. */
+    public static boolean beats(Action a, Action b) {
+        return (BEATS_MASK[a.ordinal()] & (1 << b.ordinal())) != 0;
+    }
+
+    /** Returns the result of a round from the point of view of the player who
+      * threw a: {@link #WIN}, {@link #TIE} or {@link #LOSS}.
+      */
+    public static int outcome(Action a, Action b) {
+        return OUTCOME[a.ordinal() * N + b.ordinal()];
+    }
+
+    /** Returns the index-th (0 or 1) action that defeats the given action. */
+    public static Action counter(Action a, int index) {
+        return COUNTERS[a.ordinal()][index];
+    }
+
+    /** Returns the first action that defeats both a and b, searching the
+      * counters of a in canonical order, or null if there is none.
+      */
+    public static Action commonCounter(Action a, Action b) {
+        return COMMON_COUNTER[a.ordinal() * N + b.ordinal()];
+    }
+
+    /** Returns the move that beats both possible counters of the given move,
+      * i.e. the answer to an opponent who anticipates that move. Returns null
+      * if no single action defeats both counters.
+      */
+    public static Action counterToCounters(Action move) {
+        return commonCounter(counter(move, 0), counter(move, 1));
+    }
+}
@@ -1,51 +1,80 @@
 import java.lang.Math;
-import java.math.BigDecimal;
-import java.math.MathContext;
-import java.math.RoundingMode;
 import java.util.Map;
-import java.util.Random;
-import java.util.stream.Collectors;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.ArrayList;
 
-public class PeraNai implements RoShamBot {
+public class PeraNai implements RandomizedBot {
 
     // Instance variables to keep track of
     public int consecutiveLossesCount;
     public List<Action> botMoveHistory;
     public List<Action> opponentMoveHistory;
     private Action lastOpponentMove = null;
+    private RandomSource random = new RandomSource();
     public String usedStrategy = null;
     public Map<String, Map<String, Action>> recommendedMoves;
 
+    private double[] botPayoffs; // payoff of each of our moves against all the opponent's moves so far
     private Map<Action, Map<Action, Integer>> markovChain;
-    private Map<List<Action>, Map<Action, Integer>> advancedMarkovChain;
+    private static final double ADVANCED_MARKOV_DECAY = 0.9; // share of its weight a transition keeps each round
+    private double[][] advancedMarkovChain; // [opponent * 5 + bot][next opponent] weights, by ordinal
+    private double advancedMarkovScale; // factor all weights in advancedMarkovChain are stored multiplied by
+    private byte[][] advancedMarkovRanking; // next opponent moves of each state, heaviest first
+    private int[] botMoveCounts; // own move counts, by ordinal
+    private int[] opponentMoveCounts; // opponent move counts, by ordinal
+
+    // Iocaine-style predictor: frequency and history-matching predictions of
+    // both players' moves over several horizons, each scored by how the move
+    // that beats it would have done. Predictions of our own move are turned
+    // into the opponent's best answer to it.
+    private static final int[] IOCAINE_HORIZONS = { 5, 10, 50, 100, 1000, MoveFrequencies.ALL_TIME };
+    private MatchStatistics matchStatistics;
+    private Action[] iocainePredictions; // [kind][player][horizon] predicted opponent moves this round
+    private int[] iocaineScores;
+
     public Map<String, Map<String, Integer>> scoreTable; // TODO: Change to private later
 
+    // Fixed tables shared by every instance, computed once per JVM
+    private static final DigitStream PI_DIGITS = DigitStream.pi();
+    private static final DigitStream E_DIGITS = DigitStream.e();
+
+    // Work allowed on each move, in nanoseconds as estimated by strategyCost
+    // rather than measured, so the moves played never depend on how fast the
+    // machine is. The work done every round whatever is evaluated (updating
+    // the iocaine predictor, scoring and choosing the move) is charged first
+    // as ROUND_COST. Strategies that do not fit in what is left are skipped
+    // for that move, and those far behind the leading strategy are only
+    // evaluated every PRUNE_INTERVAL rounds, so they can still catch up if
+    // the opponent changes. The estimates are averages measured once the
+    // history windows are full. Against NashBot over 100000 rounds (seed 7)
+    // a move measured 40-50 us at the median and 1-2 ms at the 99th
+    // percentile, with a few moves of up to 50 ms to JIT compilation and
+    // garbage collection; the budget does not bound those.
+    private static final int MOVE_BUDGET = 30000;
+    private static final int ROUND_COST = 9000;
+    private static final int PRUNE_MARGIN = 20;
+    private static final int PRUNE_INTERVAL = 10;
+    private boolean[] evaluated; // strategies evaluated this round; the others have no recommendation
+
     // Class variables
-    private static final List<String> strategies = Arrays.asList("random", "repeat", "ape", "rotation", "reverseRotation", "frequency", "history", "pairHistory", "markov", "advancedMarkov"); // TODO: Match with implemented strategy methods (mixed,iocaine)
+    private static final List<String> strategies = Arrays.asList("random", "mixedStrategy", "repeat", "ape", "rotation", "reverseRotation", "pi", "e", "frequency", "history", "pairHistory", "markov", "advancedMarkov", "iocaine"); // match with implemented strategy methods
     private static final List<String> metastrategies = Arrays.asList("m0", "m1", "m2", "m3", "m4");
+    private static final Action[] ACTIONS = Action.values();
 
-    private static final Map<Action, List<Action>> beats = new HashMap<>();
-    private static final Map<Action, List<Action>> beatenBy = new HashMap<>();
+    // Payoff matrix, [row player's move][column player's move] by ordinal
+    private static final double[][] PAYOFFS = {
+        {0, -1, 1, 1, -1},
+        {1, 0, -1, -1, 1},
+        {-1, 1, 0, 1, -1},
+        {-1, 1, -1, 0, 1},
+        {1, -1, 1, -1, 0}
+    };
+    // Optimal mixed strategy of the game; it never changes, so solve it once
+    private static final double[] EQUILIBRIUM = solveEquilibrium();
 
-    static {
-        beats.put(Action.ROCK, Arrays.asList(Action.SCISSORS, Action.LIZARD));
-        beats.put(Action.PAPER, Arrays.asList(Action.ROCK, Action.SPOCK));
-        beats.put(Action.SCISSORS, Arrays.asList(Action.PAPER, Action.LIZARD));
-        beats.put(Action.LIZARD, Arrays.asList(Action.SPOCK, Action.PAPER));
-        beats.put(Action.SPOCK, Arrays.asList(Action.SCISSORS, Action.ROCK));
-
-        beatenBy.put(Action.ROCK, Arrays.asList(Action.PAPER, Action.SPOCK));
-        beatenBy.put(Action.PAPER, Arrays.asList(Action.SCISSORS, Action.LIZARD));
-        beatenBy.put(Action.SCISSORS, Arrays.asList(Action.ROCK, Action.SPOCK));
-        beatenBy.put(Action.LIZARD, Arrays.asList(Action.ROCK, Action.SCISSORS));
-        beatenBy.put(Action.SPOCK, Arrays.asList(Action.PAPER, Action.LIZARD));
-    }
 
     public PeraNai() {
         consecutiveLossesCount = 0;
@@ -54,10 +83,18 @@ public class PeraNai implements RoShamBot {
         opponentMoveHistory = new ArrayList<>();
 
         recommendedMoves = new HashMap<>();
+        botPayoffs = new double[PAYOFFS.length];
+        botMoveCounts = new int[PAYOFFS.length];
+        opponentMoveCounts = new int[PAYOFFS.length];
+        matchStatistics = new MatchStatistics(IOCAINE_HORIZONS);
+        iocainePredictions = new Action[4 * IOCAINE_HORIZONS.length];
+        iocaineScores = new int[iocainePredictions.length];
 
         initializeMarkovChain();
         initializeAdvancedMarkovChain();
         initializeScoreTable();
+
+        evaluated = new boolean[strategies.size()];
     }
 
     // General bot methods begin from here
@@ -65,6 +102,11 @@ public class PeraNai implements RoShamBot {
         return (botMoveHistory != null) ? botMoveHistory.size() : 0;
     }
 
+    @Override
+    public void setRandomSource(RandomSource random) {
+        this.random = random;
+    }
+
     private void rememberRecommendedMove(String strategy, String metastrategy, Action recommendedMove) {
         recommendedMoves.computeIfAbsent(strategy, k -> new HashMap<>()).put(metastrategy, recommendedMove);
     }
@@ -75,10 +117,22 @@ public class PeraNai implements RoShamBot {
 
     private void updateBotHistory(Action move) {
         botMoveHistory.add(move);
+        botMoveCounts[move.ordinal()]++;
     }
 
     private void updateOpponentHistory(Action move) {
         opponentMoveHistory.add(move);
+        opponentMoveCounts[move.ordinal()]++;
+
+        // Keep our fictitious-play payoffs up to date
+        for (int i = 0; i < botPayoffs.length; i++) {
+            botPayoffs[i] += PAYOFFS[i][move.ordinal()];
+        }
+        int size = opponentMoveHistory.size();
+        if (size >= 2) {
+            updateAdvancedMarkovChain(opponentMoveHistory.get(size - 2), botMoveHistory.get(size - 2), move);
+        }
+        updateIocaine(move, botMoveHistory.get(size - 1));
     }
 
     private Action getPrediction(String strategy) {
@@ -172,16 +226,88 @@ public class PeraNai implements RoShamBot {
     }
 
     private void initializeAdvancedMarkovChain() {
-        advancedMarkovChain = new HashMap<>();
-
-        for (Action opponentMove : Action.values()) {
-            for (Action botMove : Action.values()) {
-                List<Action> state = Arrays.asList(opponentMove, botMove);
-                advancedMarkovChain.put(state, new HashMap<>());
-                for (Action nextMove : Action.values()) {
-                    advancedMarkovChain.get(state).put(nextMove, 0);
+        advancedMarkovChain = new double[ACTIONS.length * ACTIONS.length][ACTIONS.length];
+        advancedMarkovScale = 1.0;
+        advancedMarkovRanking = new byte[ACTIONS.length * ACTIONS.length][ACTIONS.length];
+        for (byte[] ranking : advancedMarkovRanking) {
+            for (int i = 0; i < ACTIONS.length; i++) {
+                ranking[i] = (byte) i;
+            }
+        }
+    }
+
+    private static int jointState(Action opponentMove, Action botMove) {
+        return opponentMove.ordinal() * ACTIONS.length + botMove.ordinal();
+    }
+
+    private void updateAdvancedMarkovChain(Action opponentMove, Action botMove, Action nextOpponentMove) {
+        // Instead of decaying every weight each round, give each new
+        // transition more weight than the last; only their ratios matter, so
+        // a transition 100 rounds old counts for 0.9^100 of a new one
+        advancedMarkovScale /= ADVANCED_MARKOV_DECAY;
+        if (advancedMarkovScale > 1e100) {
+            // Fold the scale back in before it overflows; the order is unchanged
+            for (double[] transitions : advancedMarkovChain) {
+                for (int i = 0; i < transitions.length; i++) {
+                    transitions[i] /= advancedMarkovScale;
                 }
             }
+            advancedMarkovScale = 1.0;
+        }
+
+        // Reward transitions out of rounds the opponent won, and penalize
+        // those out of rounds it lost
+        int reward = Outcomes.outcome(opponentMove, botMove);
+        if (reward == Outcomes.TIE) {
+            return;
+        }
+        int state = jointState(opponentMove, botMove);
+        double[] transitions = advancedMarkovChain[state];
+        byte[] ranking = advancedMarkovRanking[state];
+        int next = nextOpponentMove.ordinal();
+        transitions[next] += reward * advancedMarkovScale;
+
+        // Only the changed move can move, up past those it now outweighs or
+        // down past those that now outweigh it; equal weights keep their order
+        int position = 0;
+        while (ranking[position] != next) {
+            position++;
+        }
+        while (position > 0 && transitions[ranking[position - 1]] < transitions[next]) {
+            ranking[position] = ranking[position - 1];
+            position--;
+        }
+        while (position < ranking.length - 1 && transitions[ranking[position + 1]] > transitions[next]) {
+            ranking[position] = ranking[position + 1];
+            position++;
+        }
+        ranking[position] = (byte) next;
+    }
+
+    private void updateIocaine(Action opponentMove, Action botMove) {
+        for (int i = 0; i < iocainePredictions.length; i++) {
+            if (iocainePredictions[i] != null) {
+                iocaineScores[i] += Outcomes.outcome(Outcomes.counter(iocainePredictions[i], 0), opponentMove);
+            }
+        }
+
+        matchStatistics.record(opponentMove, botMove);
+        int horizons = IOCAINE_HORIZONS.length;
+        for (int player = 0; player < 2; player++) {
+            for (int h = 0; h < horizons; h++) {
+                Action frequent = matchStatistics.mostFrequent(player, h, random);
+                Action history = matchStatistics.historyMatch(player, h);
+                if (history == null) {
+                    history = frequent;
+                }
+                if (player == MatchStatistics.SELF) {
+                    // The opponent's answer to the move we are expected to make
+                    frequent = Outcomes.counter(frequent, 0);
+                    history = Outcomes.counter(history, 0);
+                }
+                iocainePredictions[player * horizons + h] = frequent;
+                iocainePredictions[(2 + player) * horizons + h] = history;
+            }
         }
     }
 
@@ -205,14 +331,19 @@ public class PeraNai implements RoShamBot {
     }
 
     private void updateScoreTable() { 
-        for (String strategy : strategies) {
+        for (int i = 0; i < strategies.size(); i++) {
+            if (!evaluated[i]) {
+                // Skipped last round, so there is nothing to score
+                continue;
+            }
+            String strategy = strategies.get(i);
             for (String metastrategy : metastrategies) {
                 Action botMove = getRecommendedMove(strategy, metastrategy);
 
-                if (beats.get(botMove).contains(lastOpponentMove)) {
+                if (Outcomes.beats(botMove, lastOpponentMove)) {
                     // Bot wins against opponent's last move
                     addScore(strategy, metastrategy, 2);
-                } else if (beatenBy.get(botMove).contains(lastOpponentMove)) {
+                } else if (Outcomes.beats(lastOpponentMove, botMove)) {
                     // Bot loses against opponent's last move
                     scoreTable.get(strategy).put(metastrategy, 0);
                 } else {
@@ -231,6 +362,78 @@ public class PeraNai implements RoShamBot {
         return 0;
     }
 
+    private int getBestScore(String strategy) {
+        int bestScore = Integer.MIN_VALUE;
+        for (String metastrategy : metastrategies) {
+            bestScore = Math.max(bestScore, getScore(strategy, metastrategy));
+        }
+        return bestScore;
+    }
+
+    private int strategyCost(String strategy) {
+        // Estimated nanoseconds per evaluation, including the five
+        // metastrategies; the windowed scans cost in proportion to the up to
+        // 100 positions they examine
+        int window = Math.min(getRoundsPlayed(), 100);
+        switch (strategy) {
+            case "history":
+                return 300 + 120 * window;
+            case "pairHistory":
+                return 300 + 90 * window;
+            case "markov":
+                return 300 + 40 * window;
+            default:
+                // Constant time: running counts, table lookups and digits
+                return 300;
+        }
+    }
+
+    private void evaluateStrategies() {
+        // The leading strategy has the first claim on the budget
+        int leader = 0;
+        int leaderScore = Integer.MIN_VALUE;
+        for (int i = 0; i < strategies.size(); i++) {
+            int score = getBestScore(strategies.get(i));
+            if (score > leaderScore) {
+                leader = i;
+                leaderScore = score;
+            }
+        }
+
+        Arrays.fill(evaluated, false);
+        int spent = ROUND_COST;
+        spent += evaluateWithinBudget(leader, spent);
+        for (int i = 0; i < strategies.size(); i++) {
+            if (i == leader) {
+                continue;
+            }
+            if (getBestScore(strategies.get(i)) < leaderScore - PRUNE_MARGIN
+                    && getRoundsPlayed() % PRUNE_INTERVAL != 0) {
+                // Hopelessly behind, so only checked on now and then
+                continue;
+            }
+            spent += evaluateWithinBudget(i, spent);
+        }
+    }
+
+    private int evaluateWithinBudget(int index, int spent) {
+        String strategy = strategies.get(index);
+        int cost = strategyCost(strategy);
+        if (spent + cost > MOVE_BUDGET) {
+            // Does not fit in what is left of the budget
+            return 0;
+        }
+
+        Action oppMove = getPrediction(strategy);
+        for (String metastrategy : metastrategies) {
+            // Store the moves recommended by each strategy-meta pair this round
+            Action recommendedMove = getMeta(metastrategy, oppMove);
+            rememberRecommendedMove(strategy, metastrategy, recommendedMove);
+        }
+        evaluated[index] = true;
+        return cost;
+    }
+
     private void checkForReset() {
         int resetThreshold = 3; // Adjust me
 
@@ -245,7 +448,7 @@ public class PeraNai implements RoShamBot {
         } else {
             Action lastBotMove = botMoveHistory.get(getRoundsPlayed()-1);
 
-            if (beatenBy.get(lastBotMove).contains(lastOpponentMove)) {
+            if (Outcomes.beats(lastOpponentMove, lastBotMove)) {
                 //Loss
                 consecutiveLossesCount++; // Increment consecutive losses
             } else {
@@ -256,76 +459,55 @@ public class PeraNai implements RoShamBot {
     }
 
     // Metastrategy methods begin from here
-    private Action findCommonMove(List<Action> list1, List<Action> list2) {
-        for (Action commonAction : list1) {
-            if (list2.contains(commonAction)) {
-                return commonAction;
-            }
-        }
-        return null; // No common move found
-    }
-
     private Action determineBetterMove(Action move1, Action move2) {
         if (botMoveHistory.isEmpty()) {
             // Handle the case when botMoveHistory is empty
-            return (Math.random() < 0.5) ? move1 : move2;
+            return (random.nextBoolean()) ? move1 : move2;
         }
         Action lastBotMove = botMoveHistory.get(botMoveHistory.size() - 1);
-        List<Action> lastState = Arrays.asList(lastOpponentMove, lastBotMove);
 
-        Map<Action, Integer> opponentTransitions = advancedMarkovChain.get(lastState);
+        // Opponent moves after the last state, most likely first, as kept
+        // by updateOpponentHistory
+        byte[] sortedOpponentMoves = advancedMarkovRanking[jointState(lastOpponentMove, lastBotMove)];
 
-        if (!opponentTransitions.isEmpty()) {
-            // Sort the entries based on values (probabilities) in descending order
-            List<Map.Entry<Action, Integer>> sortedTransitions = opponentTransitions.entrySet()
-                    .stream()
-                    .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
-                    .collect(Collectors.toList());
-
-            // Extract the sorted opponent moves from the sorted entries
-            Action[] sortedOpponentMoves = sortedTransitions.stream().map(Map.Entry::getKey).toArray(Action[]::new);
-            
-            int firstMoveBeats = 0;
-            int secondMoveBeats = 0;
-            for (Action opponentMove:sortedOpponentMoves) {
-                if (beats.get(move1).contains(opponentMove)) {
-                    firstMoveBeats++;
-                }
-                if (beats.get(move2).contains(opponentMove)) {
-                    secondMoveBeats++;
-                }
-                if (firstMoveBeats == 2) {
-                    if (secondMoveBeats == 2) {
-                        return determineInfrequentMove(move1, move2);
-                    } else {
-                        return move1;
-                    }
-                } else if (secondMoveBeats == 2) {
-                    return move2;
+        int firstMoveBeats = 0;
+        int secondMoveBeats = 0;
+        for (byte opponentMove : sortedOpponentMoves) {
+            if (Outcomes.beats(move1, ACTIONS[opponentMove])) {
+                firstMoveBeats++;
+            }
+            if (Outcomes.beats(move2, ACTIONS[opponentMove])) {
+                secondMoveBeats++;
+            }
+            if (firstMoveBeats == 2) {
+                if (secondMoveBeats == 2) {
+                    return determineInfrequentMove(move1, move2);
+                } else {
+                    return move1;
                 }
+            } else if (secondMoveBeats == 2) {
+                return move2;
             }
         }
         return determineInfrequentMove(move1, move2);
     }
 
     private Action determineInfrequentMove(Action move1, Action move2) {
-        int countMove1 = Collections.frequency(botMoveHistory, move1);
-        int countMove2 = Collections.frequency(botMoveHistory, move2);
+        int countMove1 = botMoveCounts[move1.ordinal()];
+        int countMove2 = botMoveCounts[move2.ordinal()];
 
         if (countMove1 < countMove2) {
             return move1;
         } else if (countMove1 > countMove2){
             return move2;
         } else {
-            return (Math.random() < 0.5) ? move1 : move2;
+            return (random.nextBoolean()) ? move1 : move2;
         }
     }
 
     private Action m0(Action move) {
-        List<Action> moveChoices = beatenBy.get(move);
-
-        Action option1 = moveChoices.get(0);
-        Action option2 = moveChoices.get(1);
+        Action option1 = Outcomes.counter(move, 0);
+        Action option2 = Outcomes.counter(move, 1);
 
         Action betterMove = determineBetterMove(option1, option2);
 
@@ -335,13 +517,7 @@ public class PeraNai implements RoShamBot {
     private Action m1(Action move) {
         // Beat m0's counter-strategy
         Action strategy = m0(move);
-        Action oppResponse1 = beatenBy.get(strategy).get(0);
-        Action oppResponse2 = beatenBy.get(strategy).get(1);
-
-        List<Action> beatOppResponse1 = beatenBy.get(oppResponse1);
-        List<Action> beatOppResponse2 = beatenBy.get(oppResponse2);
-
-        Action commonMove = findCommonMove(beatOppResponse1, beatOppResponse2);
+        Action commonMove = Outcomes.counterToCounters(strategy);
 
         // If a common move is found, return it; otherwise, return the original move
         return (commonMove != null) ? commonMove : move;
@@ -349,122 +525,115 @@ public class PeraNai implements RoShamBot {
 
     private Action m2(Action move) {
         Action strategy = m1(move);
-        Action oppResponse1 = beatenBy.get(strategy).get(0);
-        Action oppResponse2 = beatenBy.get(strategy).get(1);
-
-        List<Action> beatOppResponse1 = beatenBy.get(oppResponse1);
-        List<Action> beatOppResponse2 = beatenBy.get(oppResponse2);
-
-        Action commonMove = findCommonMove(beatOppResponse1, beatOppResponse2);
+        Action commonMove = Outcomes.counterToCounters(strategy);
 
         return (commonMove != null) ? commonMove : move;
     }
 
     private Action m3(Action move) {
         Action strategy = m2(move);
-        Action oppResponse1 = beatenBy.get(strategy).get(0);
-        Action oppResponse2 = beatenBy.get(strategy).get(1);
-
-        List<Action> beatOppResponse1 = beatenBy.get(oppResponse1);
-        List<Action> beatOppResponse2 = beatenBy.get(oppResponse2);
-
-        Action commonMove = findCommonMove(beatOppResponse1, beatOppResponse2);
+        Action commonMove = Outcomes.counterToCounters(strategy);
 
         return (commonMove != null) ? commonMove : move;
     }
 
     private Action m4(Action move) {
         Action strategy = m3(move);
-        Action oppResponse1 = beatenBy.get(strategy).get(0);
-        Action oppResponse2 = beatenBy.get(strategy).get(1);
-
-        List<Action> beatOppResponse1 = beatenBy.get(oppResponse1);
-        List<Action> beatOppResponse2 = beatenBy.get(oppResponse2);
-
-        Action commonMove = findCommonMove(beatOppResponse1, beatOppResponse2);
+        Action commonMove = Outcomes.counterToCounters(strategy);
 
         return (commonMove != null) ? commonMove : move;
     }
 
     // Strategy methods begin from here
     private Action randomAction() {
-        Random random = new Random();
-        int index = random.nextInt(Action.values().length);
-        return Action.values()[index];
+        return random.nextAction();
     }
 
-    private Action mixedStrategy() { // TODO: Fix me!
-        double[] optimalMixedStrategy = new double[5];
-
-        if (!opponentMoveHistory.isEmpty()) {
-            Map<Action, Integer> moveCounts = new HashMap<>();
-        
-            // Count the frequency of each move in the opponent's history
-            for (Action opponentMove : opponentMoveHistory) {
-                moveCounts.put(opponentMove, moveCounts.getOrDefault(opponentMove, 0) + 1);
-            }
-        
-            int totalMovesCount = getRoundsPlayed();
-            double[] opponentMixedStrategy = new double[5]; // Assuming there are 5 possible moves
-        
-            // Initialize the array with the order: Rock, Paper, Scissors, Lizard, Spock
-            for (Action move : Action.values()) {
-                int moveIndex = move.ordinal();
-                opponentMixedStrategy[moveIndex] = (double) moveCounts.getOrDefault(move, 0) / totalMovesCount;
-            }
-            // Payoff matrix
-            double[][] M = {
-                {0, -1, 1, 1, -1},
-                {1, 0, -1, -1, 1},
-                {-1, 1, 0, 1, -1},
-                {-1, 1, -1, 0, 1},
-                {1, -1, 1, -1, 0}
-            };
-            // Constraint vector (for probabilities summing to 1)
-            double[] constraints = {1, 1, 1, 1, 1};
-
-            // Create the augmented matrix for the linear system
-            double[][] augmentedMatrix = new double[M.length + 1][M[0].length + 1];
-            for (int i = 0; i < M.length; i++) {
-                System.arraycopy(M[i], 0, augmentedMatrix[i], 0, M[i].length);
+    private static double[] solveEquilibrium() {
+        // At equilibrium every move earns the value of the game, which is 0 as
+        // the game is symmetric, so solve PAYOFFS * x = 0 with one equation
+        // replaced by the constraint that the probabilities sum to 1
+        int n = PAYOFFS.length;
+        double[][] augmentedMatrix = new double[n][n + 1];
+        for (int i = 0; i < n - 1; i++) {
+            System.arraycopy(PAYOFFS[i], 0, augmentedMatrix[i], 0, n);
+        }
+        Arrays.fill(augmentedMatrix[n - 1], 1);
+
+        // Gaussian Elimination, with partial pivoting
+        for (int i = 0; i < n; i++) {
+            int pivot = i;
+            for (int k = i + 1; k < n; k++) {
+                if (Math.abs(augmentedMatrix[k][i]) > Math.abs(augmentedMatrix[pivot][i])) {
+                    pivot = k;
+                }
             }
-            System.arraycopy(constraints, 0, augmentedMatrix[M.length], 0, constraints.length);
-
-            int n = augmentedMatrix.length;
-
-            // Gaussian Elimination
-            for (int i = 0; i < n - 1; i++) {
-                for (int k = i + 1; k < n; k++) {
-                    double factor = augmentedMatrix[k][i] / augmentedMatrix[i][i];
-                    for (int j = i; j < n + 1; j++) {
-                        augmentedMatrix[k][j] -= factor * augmentedMatrix[i][j];
-                    }
+            double[] row = augmentedMatrix[i];
+            augmentedMatrix[i] = augmentedMatrix[pivot];
+            augmentedMatrix[pivot] = row;
+
+            for (int k = i + 1; k < n; k++) {
+                double factor = augmentedMatrix[k][i] / augmentedMatrix[i][i];
+                for (int j = i; j < n + 1; j++) {
+                    augmentedMatrix[k][j] -= factor * augmentedMatrix[i][j];
                 }
             }
+        }
 
-            // Back substitution
-            for (int i = n - 1; i >= 0; i--) {
-                double sum = 0.0;
-                for (int j = i + 1; j < n; j++) {
-                    sum += augmentedMatrix[i][j] * optimalMixedStrategy[j];
-                }
-                optimalMixedStrategy[i] = (augmentedMatrix[i][n] - sum) / augmentedMatrix[i][i];
+        // Back substitution
+        double[] optimalMixedStrategy = new double[n];
+        for (int i = n - 1; i >= 0; i--) {
+            double sum = 0.0;
+            for (int j = i + 1; j < n; j++) {
+                sum += augmentedMatrix[i][j] * optimalMixedStrategy[j];
+            }
+            optimalMixedStrategy[i] = (augmentedMatrix[i][n] - sum) / augmentedMatrix[i][i];
+        }
+        return optimalMixedStrategy;
+    }
+
+    private Action mixedStrategy() {
+        // Fictitious play: our best response to the empirical distribution of
+        // the opponent's moves, whose payoffs updateOpponentHistory keeps
+        double bestPayoff = Double.NEGATIVE_INFINITY;
+        double tiedProbability = 0.0;
+        for (int i = 0; i < botPayoffs.length; i++) {
+            if (botPayoffs[i] > bestPayoff) {
+                bestPayoff = botPayoffs[i];
+                tiedProbability = EQUILIBRIUM[i];
+            } else if (botPayoffs[i] == bestPayoff) {
+                tiedProbability += EQUILIBRIUM[i];
             }
-            // Use the optimal mixed strategy to determine the move
-            double rand = Math.random();
-            double cumulativeProb = 0.0;
+        }
 
-            for (int i = 0; i < optimalMixedStrategy.length; i++) {
-                cumulativeProb += optimalMixedStrategy[i];
+        // Choose between equally good responses by the optimal mixed strategy,
+        // which covers the case of no history at all
+        double rand = random.nextDouble() * tiedProbability;
+        double cumulativeProb = 0.0;
+        // (rounding can leave rand just past the last cumulative probability,
+        // in which case the last of them is kept)
+        int bestResponse = 0;
+        for (int i = 0; i < botPayoffs.length; i++) {
+            if (botPayoffs[i] == bestPayoff) {
+                cumulativeProb += EQUILIBRIUM[i];
+                bestResponse = i;
                 if (rand < cumulativeProb) {
-                    // i corresponds to the move (0 for Rock, 1 for Paper, etc.)
-                    return Action.values()[i];
+                    break;
                 }
             }
         }
-        
-        // Fallback: choose randomly if the cumulative probability doesn't match any move
-        return randomAction();
+
+        // Strategies predict the opponent's move, so predict the one of the
+        // two our best response beats that the opponent has played more; the
+        // metastrategies then answer with a move that beats it
+        int prediction = -1;
+        for (int i = 0; i < ACTIONS.length; i++) {
+            if (Outcomes.beats(ACTIONS[bestResponse], ACTIONS[i])
+                    && (prediction < 0 || opponentMoveCounts[i] > opponentMoveCounts[prediction])) {
+                prediction = i;
+            }
+        }
+        return ACTIONS[prediction];
     }
 
     private Action repeat() {
@@ -502,57 +671,43 @@ public class PeraNai implements RoShamBot {
     }
 
     private Action pi() {
-        BigDecimal pi = new BigDecimal(Math.PI).setScale(this.getRoundsPlayed() + 1, RoundingMode.DOWN);
-        int piDigit = pi.remainder(BigDecimal.ONE).movePointRight(pi.scale()).intValue();
+        // Digit of pi corresponding to the current move number
+        int piDigit = PI_DIGITS.digit(this.getRoundsPlayed());
 
         // Use the modulus of the pi digit to choose from actions
-        Action[] allActions = Action.values();
-        int actionIndex = piDigit % allActions.length;
-
-        return allActions[actionIndex];
+        return ACTIONS[piDigit % ACTIONS.length];
     }
 
     public Action e() {
-        // Calculate the digit of 'e' corresponding to the current move number
-        BigDecimal e = new BigDecimal(Math.E, MathContext.DECIMAL128).setScale(this.getRoundsPlayed() + 1,
-                RoundingMode.DOWN);
-        int eDigit = e.remainder(BigDecimal.ONE).movePointRight(e.scale()).intValue();
+        // Digit of 'e' corresponding to the current move number
+        int eDigit = E_DIGITS.digit(this.getRoundsPlayed());
 
         // Use the modulus of the 'e' digit to choose from actions
-        Action[] allActions = Action.values();
-        int actionIndex = eDigit % allActions.length;
-
-        return allActions[actionIndex];
+        return ACTIONS[eDigit % ACTIONS.length];
     }
 
     private Action frequencyCounter() {
         // Check if there are previous moves in the opponent's history
         if (!opponentMoveHistory.isEmpty()) {
-            Map<Action, Integer> moveCounts = new HashMap<>();
-
-            // Count the frequency of each move in the opponent's history
-            for (Action opponentMove : opponentMoveHistory) {
-                moveCounts.put(opponentMove, moveCounts.getOrDefault(opponentMove, 0) + 1);
-            }
-
-            // Find the moves with the highest frequency
-            List<Action> mostFrequentMoves = new ArrayList<>();
+            // Find the moves with the highest frequency, from the counts kept
+            // by updateOpponentHistory
             int maxCount = 0;
-            for (Map.Entry<Action, Integer> entry : moveCounts.entrySet()) {
-                int count = entry.getValue();
+            int ties = 0;
+            for (int count : opponentMoveCounts) {
                 if (count > maxCount) {
-                    mostFrequentMoves.clear();
-                    mostFrequentMoves.add(entry.getKey());
                     maxCount = count;
+                    ties = 1;
                 } else if (count == maxCount) {
-                    mostFrequentMoves.add(entry.getKey());
+                    ties++;
                 }
             }
 
             // Break ties randomly
-            if (!mostFrequentMoves.isEmpty()) {
-                Random random = new Random();
-                return mostFrequentMoves.get(random.nextInt(mostFrequentMoves.size()));
+            int choice = random.nextInt(ties);
+            for (int i = 0; i < opponentMoveCounts.length; i++) {
+                if (opponentMoveCounts[i] == maxCount && choice-- == 0) {
+                    return ACTIONS[i];
+                }
             }
         }
         // If there's no history, return a random move
@@ -712,9 +867,9 @@ public class PeraNai implements RoShamBot {
                 markovChain.get(currentMove).put(nextMove, count);
     
                 // Optionally, introduce rewards for winning or losing states
-                if (beats.get(currentMove).contains(botMoveHistory.get(i))) {
+                if (Outcomes.beats(currentMove, botMoveHistory.get(i))) {
                     markovChain.get(currentMove).put(nextMove, count + 1);
-                } else if (beatenBy.get(currentMove).contains(botMoveHistory.get(i))) {
+                } else if (Outcomes.beats(botMoveHistory.get(i), currentMove)) {
                     markovChain.get(currentMove).put(nextMove, count - 1);
                 }
             }
@@ -733,49 +888,28 @@ public class PeraNai implements RoShamBot {
     }
 
     private Action advancedMarkovChain() {
-        int historyWindow = 100; // Adjust the history window to track only the last 100 moves
-        double decayFactor = 0.9; // Introduce a decay factor (adjust as needed)
-    
         if (getRoundsPlayed() >= 2) {
-            int startIndex = Math.max(0, opponentMoveHistory.size() - historyWindow);
-    
-            for (int i = startIndex; i < opponentMoveHistory.size() - 1 && i < botMoveHistory.size() - 1; i++) {
-                Action currentOpponentMove = opponentMoveHistory.get(i);
-                Action currentBotMove = botMoveHistory.get(i);
-                Action nextOpponentMove = opponentMoveHistory.get(i + 1);
-    
-                List<Action> currentState = Arrays.asList(currentOpponentMove, currentBotMove);
-    
-                // Update the count with a decay factor
-                int count = advancedMarkovChain.get(currentState).get(nextOpponentMove);
-                count = (int) (decayFactor * count);
-                advancedMarkovChain.get(currentState).put(nextOpponentMove, count);
-    
-                // Optionally, introduce rewards for winning or losing states
-                if (beats.get(currentOpponentMove).contains(currentBotMove)) {
-                    advancedMarkovChain.get(currentState).put(nextOpponentMove, count + 1);
-                } else if (beatenBy.get(currentOpponentMove).contains(currentBotMove)) {
-                    advancedMarkovChain.get(currentState).put(nextOpponentMove, count - 1);
-                }
-            }
-    
+            // The chain is kept up to date by updateOpponentHistory
             Action lastBotMove = botMoveHistory.get(botMoveHistory.size() - 1);
-            List<Action> lastState = Arrays.asList(lastOpponentMove, lastBotMove);
-    
-            Map<Action, Integer> opponentTransitions = advancedMarkovChain.get(lastState);
-            if (!opponentTransitions.isEmpty()) {
-                // Choose the next opponent move based on the most likely transition
-                Action predictedOpponentMove = Collections
-                        .max(opponentTransitions.entrySet(), Map.Entry.comparingByValue()).getKey();
-                return predictedOpponentMove;
-            }
+            byte[] ranking = advancedMarkovRanking[jointState(lastOpponentMove, lastBotMove)];
+
+            // Choose the next opponent move based on the most likely transition
+            return ACTIONS[ranking[0]];
         }
         // Default to a random move if no history or transitions are available
         return randomAction();
     }
 
     private Action iocainePowder() {
-        return randomAction();
+        // The prediction whose counter has scored best so far, kept up to
+        // date by updateOpponentHistory
+        int best = -1;
+        for (int i = 0; i < iocainePredictions.length; i++) {
+            if (iocainePredictions[i] != null && (best < 0 || iocaineScores[i] > iocaineScores[best])) {
+                best = i;
+            }
+        }
+        return (best >= 0) ? iocainePredictions[best] : randomAction();
     }
 
     // main function methods begin from here
@@ -789,7 +923,12 @@ public class PeraNai implements RoShamBot {
         String bestMeta = null;
         int maxScore = Integer.MIN_VALUE;
 
-        for (String strategy : strategies) {
+        for (int i = 0; i < strategies.size(); i++) {
+            if (!evaluated[i]) {
+                // Skipped this round, so it has no recommendation
+                continue;
+            }
+            String strategy = strategies.get(i);
             for (String metastrategy : metastrategies) {
                 int score = getScore(strategy, metastrategy);
 
@@ -800,7 +939,6 @@ public class PeraNai implements RoShamBot {
                     bestMeta = metastrategy;
                 } else if (score == maxScore) {
                     // Break ties pseudo-randomly
-                    Random random = new Random();
                     if (random.nextBoolean()) {
                         bestStrategy = strategy;
                         bestMeta = metastrategy;
@@ -827,14 +965,7 @@ public class PeraNai implements RoShamBot {
             updateScoreTable();
         }
 
-        for (String strategy : strategies) {
-            Action oppMove = getPrediction(strategy);
-            for (String metastrategy : metastrategies) {
-                // Store the moves recommended by each strategy-meta pair this round
-                Action recommendedMove = getMeta(metastrategy, oppMove);
-                rememberRecommendedMove(strategy, metastrategy, recommendedMove);
-            }
-        }
+        evaluateStrategies();
         checkForReset();
 
         Action nextMove = findBestMove();
@@ -0,0 +1,63 @@
+
+import java.util.SplittableRandom;
+
+/** Source of randomness for bots and matches.
+  *
+  * Wraps a {@link SplittableRandom}, so it is cheap to use but not safe to
+  * share between threads. Each match should get its own instance, normally
+  * obtained with {@link #split()} from a tournament-wide seeded source, which
+  * makes every run reproducible from a single seed.
+  */
+public final class RandomSource {
+
+    private static final Action[] ACTIONS = Action.values();
+
+    private final SplittableRandom random;
+
+    /** Creates an unseeded source. */
+    public RandomSource() {
+        this(new SplittableRandom());
+    }
+
+    /** Creates a source that produces the same sequence for the same seed.
+      *
+      * @param seed the initial seed.
+      */
+    public RandomSource(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    private RandomSource(SplittableRandom random) {
+        this.random = random;
+    }
+
+    /** Returns a new, independent source derived from this one. */
+    public RandomSource split() {
+        return new RandomSource(this.random.split());
+    }
+
+    /** Returns a uniformly distributed int in [0, bound). */
+    public int nextInt(int bound) {
+        return this.random.nextInt(bound);
+    }
+
+    /** Returns a uniformly distributed long. */
+    public long nextLong() {
+        return this.random.nextLong();
+    }
+
+    /** Returns a uniformly distributed double in [0, 1). */
+    public double nextDouble() {
+        return this.random.nextDouble();
+    }
+
+    /** Returns true or false with equal probability. */
+    public boolean nextBoolean() {
+        return this.random.nextBoolean();
+    }
+
+    /** Returns an action chosen uniformly at random. */
+    public Action nextAction() {
+        return ACTIONS[this.random.nextInt(ACTIONS.length)];
+    }
+}
@@ -0,0 +1,13 @@
+
+/** A bot whose moves depend on a source of randomness.
+  *
+  * The arbiter of a seeded match hands each such bot its own
+  * {@link RandomSource} before the first round, so that the match can be
+  * replayed exactly.
+  */
+public interface RandomizedBot extends RoShamBot {
+
+    /** Replaces the source of randomness used by this bot. */
+    public void setRandomSource(RandomSource random);
+
+}
@@ -0,0 +1,82 @@
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/** A Rock-Paper-Scissors-Lizard-Spock bot that replays the moves of one
+  * player from a recorded {@link Transcript}, starting over when the
+  * recording runs out.
+  *
+  * Moves are streamed from a memory-mapped file and nothing is allocated per
+  * move, so a bot under test can be measured against a real opponent's
+  * behaviour without paying for that opponent's computation.
+  *
+  * When loaded by name (e.g. from {@link Tournament}) the transcript is taken
+  * from the system property {@code replay.file} and the replayed player
+  * (1 or 2) from {@code replay.player}, which defaults to 1.
+  */
+public class ReplayBot implements RoShamBot, AutoCloseable {
+
+    private final TranscriptReader transcript;
+    private final boolean replayPlayer1;
+
+    /** Replays the player named by the replay.file and replay.player system
+      * properties.
+      *
+      * @throws IOException if the transcript cannot be opened.
+      */
+    public ReplayBot() throws IOException {
+        this(Paths.get(requireProperty("replay.file")),
+             Integer.parseInt(System.getProperty("replay.player", "1")));
+    }
+
+    /** Replays one player of a transcript.
+      *
+      * @param path the transcript file.
+      * @param player the player to replay, 1 or 2.
+      * @throws IOException if the transcript cannot be opened.
+      */
+    public ReplayBot(Path path, int player) throws IOException {
+        if (player != 1 && player != 2)
+            throw new IllegalArgumentException("player must be 1 or 2: " + player);
+        this.transcript = new TranscriptReader(path);
+        this.replayPlayer1 = (player == 1);
+        if (this.transcript.getRounds() == 0) {
+            this.transcript.close();
+            throw new IOException("empty transcript: " + path);
+        }
+    }
+
+    private static String requireProperty(String name) {
+        String value = System.getProperty(name);
+        if (value == null)
+            throw new IllegalStateException("system property " + name + " is not set");
+        return value;
+    }
+
+    /** Returns the next recorded move of the replayed player.
+      *
+      * @param lastOpponentMove the action that was played by the opponent on
+      *        the last round (this is disregarded).
+      * @return the next action to play.
+      */
+    public Action getNextMove(Action lastOpponentMove) {
+        try {
+            if (!transcript.hasNext())
+                transcript.rewind();
+            int round = transcript.next();
+            return replayPlayer1 ? Transcript.player1Move(round) : Transcript.player2Move(round);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Closes the underlying transcript. */
+    @Override
+    public void close() throws IOException {
+        transcript.close();
+    }
+
+}
@@ -0,0 +1,75 @@
+
+/** Rolling polynomial hash of the most recent symbols of a stream.
+  *
+  * Keeps the hash of the last {@code length} symbols pushed, updated in
+  * constant time per symbol: the oldest symbol's contribution is subtracted,
+  * the rest shifted by one power of the base, and the new symbol added.
+  *
+  * Arithmetic is modulo the prime 2^61 - 1 rather than 2^64: hashes modulo
+  * 2^64 collide for some structured inputs whatever the base (Thue-Morse
+  * sequences, for instance), while modulo a prime two different windows
+  * collide only if the base is a root of their difference polynomial, of
+  * which there are at most {@code length}. The base is fixed, though, so
+  * this is not a guarantee against inputs built to collide, and callers that
+  * key on the hash alone must accept that a collision merges two windows.
+  */
+public final class RollingHash {
+
+    private static final long MODULUS = (1L << 61) - 1;
+    private static final long BASE = 0x1E3779B97F4A7C15L; // below MODULUS
+
+    private final byte[] window; // ring buffer of the symbols in the window
+    private final long outgoingFactor; // BASE^length
+    private long hash;
+    private long pushed;
+
+    /** Creates an empty hash over windows of the given length. */
+    public RollingHash(int length) {
+        if (length < 1)
+            throw new IllegalArgumentException("length must be positive: " + length);
+        this.window = new byte[length];
+        long factor = 1;
+        for (int i = 0; i < length; i++)
+            factor = multiply(factor, BASE);
+        this.outgoingFactor = factor;
+    }
+
+    /** Returns x reduced modulo 2^61 - 1, for 0 <= x < 2^63. */
+    private static long reduce(long x) {
+        x = (x & MODULUS) + (x >>> 61);
+        return (x >= MODULUS) ? x - MODULUS : x;
+    }
+
+    /** Returns a * b modulo 2^61 - 1, for a and b already reduced. */
+    private static long multiply(long a, long b) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        // The product is below 2^122; split it at bit 61
+        return reduce((low & MODULUS) + ((low >>> 61) | (high << 3)));
+    }
+
+    /** Appends a symbol (0 to 126) to the stream, dropping the oldest one once
+      * the window is full.
+      */
+    public void push(int symbol) {
+        int slot = (int) (this.pushed % this.window.length);
+        long outgoing = (this.pushed >= this.window.length) ? this.window[slot] + 1 : 0;
+        long shifted = reduce(multiply(this.hash, BASE) + (symbol + 1));
+        long dropped = multiply(outgoing, this.outgoingFactor);
+        this.hash = (shifted >= dropped) ? shifted - dropped : shifted - dropped + MODULUS;
+        this.window[slot] = (byte) symbol;
+        this.pushed++;
+    }
+
+    /** Returns true once at least a full window of symbols has been pushed. */
+    public boolean isFull() {
+        return this.pushed >= this.window.length;
+    }
+
+    /** Returns the hash of the last {@code length} symbols. Only meaningful
+      * once {@link #isFull()}.
+      */
+    public long value() {
+        return this.hash;
+    }
+}
@@ -0,0 +1,196 @@
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/** Runs every pairing of a list of Rock-Paper-Scissors-Lizard-Spock bots in
+  * parallel and ranks the bots by their results.
+  *
+  * Each match is played between fresh bot instances on a fork-join pool, so
+  * the bots themselves need not be thread-safe. Every match gets its own
+  * random source split from a single seed, so the whole round-robin can be
+  * replayed regardless of how the pool schedules the matches.
+  */
+public class RoundRobin {
+
+    private final List<String> botNames;
+    private final long numRounds;
+    private final long seed;
+    private final boolean timing;
+
+    /** Sets up a round-robin between the named bots.
+      *
+      * @param botNames the class names of the participating bots.
+      * @param numRounds the number of rounds to play in each match.
+      * @param seed the seed from which all match randomness is derived.
+      * @param timing whether to record the move latencies of every bot.
+      */
+    public RoundRobin(List<String> botNames, long numRounds, long seed, boolean timing) {
+        this.botNames = new ArrayList<>(botNames);
+        this.numRounds = numRounds;
+        this.seed = seed;
+        this.timing = timing;
+    }
+
+    /** Plays every pairing of bots on the given pool.
+      *
+      * @param pool the pool on which to run the matches.
+      * @return the standings of all bots, best first.
+      */
+    public List<Standing> run(ForkJoinPool pool) {
+        int n = botNames.size();
+        RandomSource random = new RandomSource(seed);
+        List<Match> matches = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                // Split here rather than in the task so seeds follow pairing order
+                Match match = new Match(i, j, random.split());
+                matches.add(match);
+                pool.submit(match);
+            }
+        }
+
+        List<Standing> standings = new ArrayList<>();
+        for (String name : botNames) {
+            standings.add(new Standing(name));
+        }
+        for (Match match : matches) {
+            match.join();
+            MatchResult result = match.result;
+            standings.get(match.player1).record(result.getWins(), result.getTies(), result.getLosses(),
+                                                match.latency1);
+            standings.get(match.player2).record(result.getLosses(), result.getTies(), result.getWins(),
+                                                match.latency2);
+        }
+
+        Collections.sort(standings, Comparator.comparingInt(Standing::getPoints)
+                                              .thenComparingLong(Standing::getRoundMargin)
+                                              .reversed());
+        return standings;
+    }
+
+    /** A single pairing, played as one fork-join task. */
+    private class Match extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int player1;
+        private final int player2;
+        private final RandomSource random;
+        private MatchResult result;
+        private LatencyHistogram latency1;
+        private LatencyHistogram latency2;
+
+        Match(int player1, int player2, RandomSource random) {
+            this.player1 = player1;
+            this.player2 = player2;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            RoShamBot bot1 = null;
+            RoShamBot bot2 = null;
+            try {
+                bot1 = Tournament.loadBot(botNames.get(player1));
+                bot2 = Tournament.loadBot(botNames.get(player2));
+                Arbiter judge = new Arbiter(bot1, bot2, random);
+                if (timing)
+                    judge.enableTiming();
+                result = judge.runRounds(numRounds);
+                latency1 = judge.getPlayer1Latency();
+                latency2 = judge.getPlayer2Latency();
+            }
+            catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("could not load bot", e);
+            }
+            finally {
+                Tournament.closeBot(bot1);
+                Tournament.closeBot(bot2);
+            }
+        }
+    }
+
+    /** Cumulative record of a single bot over the round-robin. Matches award
+      * 3 points for a win and 1 for a tie.
+      */
+    public static class Standing {
+
+        private final String name;
+        private int matchWins;
+        private int matchTies;
+        private int matchLosses;
+        private long roundWins;
+        private long roundTies;
+        private long roundLosses;
+        private LatencyHistogram latency;
+
+        Standing(String name) {
+            this.name = name;
+        }
+
+        void record(long wins, long ties, long losses, LatencyHistogram matchLatency) {
+            if (wins > losses)
+                matchWins++;
+            else if (wins < losses)
+                matchLosses++;
+            else
+                matchTies++;
+            roundWins += wins;
+            roundTies += ties;
+            roundLosses += losses;
+            if (matchLatency != null) {
+                if (latency == null)
+                    latency = new LatencyHistogram();
+                latency.add(matchLatency);
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMatchWins() {
+            return matchWins;
+        }
+
+        public int getMatchTies() {
+            return matchTies;
+        }
+
+        public int getMatchLosses() {
+            return matchLosses;
+        }
+
+        public int getPoints() {
+            return 3 * matchWins + matchTies;
+        }
+
+        public long getRoundWins() {
+            return roundWins;
+        }
+
+        public long getRoundTies() {
+            return roundTies;
+        }
+
+        public long getRoundLosses() {
+            return roundLosses;
+        }
+
+        /** Returns the move latencies of this bot over all its matches, or
+          * null if timing was not enabled.
+          */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        /** Returns rounds won minus rounds lost over all matches. */
+        public long getRoundMargin() {
+            return roundWins - roundLosses;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+/** Deterministic checks of the incremental data structures the bots rely
+  * on, each against a brute-force recomputation over the same seeded input.
+  *
+  * Run with {@code java StructureChecks}; it prints one line per structure
+  * and exits with an exception at the first disagreement.
+  */
+public class StructureChecks {
+
+    private static final Action[] ACTIONS = Action.values();
+    private static final long SEED = 1;
+
+    public static void main(String[] args) {
+        checkMoveFrequencies();
+        checkNextMoveTable();
+        checkRollingHash();
+        checkMatchStatistics();
+        checkDigitStream();
+        System.out.println("All checks passed.");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition)
+            throw new IllegalStateException(message);
+    }
+
+    /** Moves that repeat often enough for long contexts to recur: mostly a
+      * short pattern, with every fourth move random.
+      */
+    private static int[] patternedMoves(RandomSource random, int count, int period) {
+        int[] moves = new int[count];
+        for (int t = 0; t < count; t++) {
+            moves[t] = (random.nextInt(4) == 0) ? random.nextInt(ACTIONS.length)
+                    : (t % period < 3) ? 1 : (t * 3) % ACTIONS.length;
+        }
+        return moves;
+    }
+
+    /** Counts and most frequent moves over every horizon against a rescan of
+      * the window.
+      */
+    private static void checkMoveFrequencies() {
+        int[] horizons = { 1, 5, 10, 100, MoveFrequencies.ALL_TIME };
+        RandomSource random = new RandomSource(SEED);
+        int[] moves = patternedMoves(random.split(), 2000, 7);
+        MoveFrequencies frequencies = new MoveFrequencies(horizons);
+
+        for (int t = 0; t < moves.length; t++) {
+            frequencies.record(ACTIONS[moves[t]]);
+            for (int h = 0; h < horizons.length; h++) {
+                int start = (horizons[h] == MoveFrequencies.ALL_TIME) ? 0 : Math.max(0, t + 1 - horizons[h]);
+                int[] counts = new int[ACTIONS.length];
+                for (int i = start; i <= t; i++)
+                    counts[moves[i]]++;
+                int max = 0;
+                for (Action action : ACTIONS) {
+                    check(frequencies.count(h, action) == counts[action.ordinal()],
+                        "MoveFrequencies: count of " + action + " over horizon " + horizons[h] + " after " + (t + 1) + " moves");
+                    max = Math.max(max, counts[action.ordinal()]);
+                }
+                Action frequent = frequencies.mostFrequent(h, random);
+                check(counts[frequent.ordinal()] == max,
+                    "MoveFrequencies: most frequent over horizon " + horizons[h] + " after " + (t + 1) + " moves");
+            }
+        }
+        System.out.println("MoveFrequencies: ok");
+    }
+
+    /** Interleaved increments and decrements over a small key space, so that
+      * probe runs form and entries are removed from the middle of them,
+      * against a map of counts.
+      */
+    private static void checkNextMoveTable() {
+        RandomSource random = new RandomSource(SEED);
+        NextMoveTable table = new NextMoveTable();
+        Map<Long, int[]> expected = new HashMap<>();
+        int keys = 300;
+
+        for (int step = 0; step < 200000; step++) {
+            long key = random.nextInt(keys) * 0x9E3779B97F4A7C15L;
+            Action action = random.nextAction();
+            int[] counts = expected.computeIfAbsent(key, k -> new int[ACTIONS.length]);
+            // Mostly taking back in the second half, so the table empties out
+            boolean decrement = random.nextInt(10) < ((step < 100000) ? 4 : 7);
+            if (decrement) {
+                table.decrement(key, action);
+                if (counts[action.ordinal()] > 0)
+                    counts[action.ordinal()]--;
+            } else {
+                table.increment(key, action);
+                counts[action.ordinal()]++;
+            }
+
+            if (step % 1000 == 0 || step == 199999) {
+                for (int k = 0; k < keys; k++) {
+                    long context = k * 0x9E3779B97F4A7C15L;
+                    int[] want = expected.getOrDefault(context, new int[ACTIONS.length]);
+                    int max = 0;
+                    for (Action next : ACTIONS) {
+                        check(table.count(context, next) == want[next.ordinal()],
+                            "NextMoveTable: count of " + next + " after context " + k + " at step " + step);
+                        max = Math.max(max, want[next.ordinal()]);
+                    }
+                    Action frequent = table.mostFrequent(context);
+                    if (max == 0)
+                        check(frequent == null, "NextMoveTable: removed context " + k + " still present at step " + step);
+                    else
+                        check(frequent != null && want[frequent.ordinal()] == max,
+                            "NextMoveTable: most frequent after context " + k + " at step " + step);
+                }
+            }
+        }
+        System.out.println("NextMoveTable: ok");
+    }
+
+    /** Every full window's hash against the polynomial evaluated modulo
+      * 2^61 - 1 with BigInteger.
+      */
+    private static void checkRollingHash() {
+        BigInteger modulus = BigInteger.ONE.shiftLeft(61).subtract(BigInteger.ONE);
+        BigInteger base = BigInteger.valueOf(0x1E3779B97F4A7C15L);
+        RandomSource random = new RandomSource(SEED);
+
+        for (int length : new int[] { 1, 2, 13, 100 }) {
+            RollingHash hash = new RollingHash(length);
+            int[] symbols = new int[3000];
+            for (int t = 0; t < symbols.length; t++) {
+                // Include the largest symbol, where the arithmetic is tightest
+                symbols[t] = (t % 11 == 0) ? 126 : random.nextInt(127);
+                hash.push(symbols[t]);
+                check(hash.isFull() == (t + 1 >= length), "RollingHash: isFull after " + (t + 1) + " symbols");
+                if (!hash.isFull())
+                    continue;
+                BigInteger value = BigInteger.ZERO;
+                for (int i = t + 1 - length; i <= t; i++)
+                    value = value.multiply(base).add(BigInteger.valueOf(symbols[i] + 1)).mod(modulus);
+                check(hash.value() == value.longValue(),
+                    "RollingHash: window of " + length + " ending at " + t);
+            }
+        }
+        System.out.println("RollingHash: ok");
+    }
+
+    /** History-matching predictions of both players over every horizon
+      * against a scan for the most recent earlier occurrence of the longest
+      * matching context.
+      */
+    private static void checkMatchStatistics() {
+        int[] horizons = { 5, 10, 50, 100, 1000, MoveFrequencies.ALL_TIME };
+        RandomSource random = new RandomSource(SEED);
+        int[][] moves = { patternedMoves(random.split(), 3000, 7), patternedMoves(random.split(), 3000, 12) };
+        MatchStatistics statistics = new MatchStatistics(horizons);
+
+        for (int t = 0; t < moves[0].length; t++) {
+            statistics.record(ACTIONS[moves[MatchStatistics.OPPONENT][t]], ACTIONS[moves[MatchStatistics.SELF][t]]);
+            int rounds = t + 1;
+            for (int player = 0; player < 2; player++) {
+                int[] history = moves[player];
+                for (int h = 0; h < horizons.length; h++) {
+                    int expected = bruteForceMatch(history, rounds, horizons[h]);
+                    Action predicted = statistics.historyMatch(player, h);
+                    check(((predicted == null) ? -1 : predicted.ordinal()) == expected,
+                        "MatchStatistics: player " + player + ", horizon " + horizons[h] + " after " + rounds + " rounds");
+                }
+            }
+        }
+        System.out.println("MatchStatistics: ok");
+    }
+
+    /** Returns the move that followed the most recent earlier occurrence of
+      * the longest context ending the history that lies within the horizon,
+      * or -1 if there is none.
+      */
+    private static int bruteForceMatch(int[] history, int rounds, int horizon) {
+        for (int length = Math.min(MatchStatistics.MAX_MATCH, rounds - 1); length >= 1; length--) {
+            for (int end = rounds - 1; end >= length; end--) {
+                if (horizon != MoveFrequencies.ALL_TIME && end - length < rounds - horizon)
+                    break;
+                boolean matches = true;
+                for (int k = 1; k <= length && matches; k++)
+                    matches = history[end - k] == history[rounds - k];
+                if (matches)
+                    return history[end];
+            }
+        }
+        return -1;
+    }
+
+    /** All digits of pi and e, and the wrap past the last one, against values
+      * computed independently: pi by Machin's formula, e by summing 1 / k!.
+      */
+    private static void checkDigitStream() {
+        int precision = DigitStream.LENGTH + 20;
+        BigInteger one = BigInteger.TEN.pow(precision);
+        BigInteger pi = arctanInverse(5, one).shiftLeft(4).subtract(arctanInverse(239, one).shiftLeft(2));
+        BigInteger e = BigInteger.ZERO;
+        BigInteger term = one;
+        for (int k = 1; term.signum() > 0; k++) {
+            e = e.add(term);
+            term = term.divide(BigInteger.valueOf(k));
+        }
+
+        checkDigits("pi", DigitStream.pi(), pi.toString());
+        checkDigits("e", DigitStream.e(), e.toString());
+        System.out.println("DigitStream: ok");
+    }
+
+    /** Returns arctan(1 / x) scaled by one, from its Taylor series. */
+    private static BigInteger arctanInverse(int x, BigInteger one) {
+        BigInteger square = BigInteger.valueOf((long) x * x);
+        BigInteger power = one.divide(BigInteger.valueOf(x));
+        BigInteger sum = power;
+        for (int k = 3; power.signum() > 0; k += 2) {
+            power = power.divide(square);
+            BigInteger term = power.divide(BigInteger.valueOf(k));
+            sum = ((k & 2) != 0) ? sum.subtract(term) : sum.add(term);
+        }
+        return sum;
+    }
+
+    private static void checkDigits(String name, DigitStream stream, String scaled) {
+        // The scaled value has one digit before the decimal point; the last
+        // few are off by the truncation of the series, well past LENGTH
+        for (int i = 0; i < DigitStream.LENGTH; i++) {
+            check(stream.digit(i) == scaled.charAt(i + 1) - '0', "DigitStream: digit " + i + " of " + name);
+            check(stream.digit(i + DigitStream.LENGTH) == stream.digit(i), "DigitStream: wrap at digit " + i + " of " + name);
+        }
+    }
+}
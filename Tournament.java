@@ -1,59 +1,222 @@
 
-/** Program that runs a Rock-Paper-Scissors-Lizard-Spock tournament between the 
-  * two named players.
-  * 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/** Program that runs a Rock-Paper-Scissors-Lizard-Spock tournament between the
+  * two named players, or a round-robin between any number of named players.
+  *
   * @author RR
   */
 public class Tournament {
- 
+
     public static void main(String[] args) {
-        if (args.length != 3) {
-            System.out.println("Usage: java Tournament <player1> <player2> <n>");
-            System.out.println("where <player1> = class name of first bot.");
-            System.out.println("      <player2> = class name of second bot.");
-            System.out.println("      <n>       = number of rounds to play.");
-            System.out.println("Example:");
-            System.out.println("java Tournament NashBot MixedBot 10000");
-        }
-        
-        // Determine number of rounds to run
-        int numRounds = 0;
-        try {
-            numRounds = Integer.parseInt(args[2]);
+        // Seed for all randomness in this run; printed so the run can be replayed
+        long seed = System.nanoTime();
+        boolean timing = false;
+        String transcriptFile = null;
+        while (args.length >= 1 && (args[0].equals("-seed") || args[0].equals("-timing") ||
+                                    args[0].equals("-transcript"))) {
+            if (args[0].equals("-timing")) {
+                timing = true;
+                args = Arrays.copyOfRange(args, 1, args.length);
+                continue;
+            }
+            if (args.length < 2)
+                printUsage();
+            if (args[0].equals("-transcript")) {
+                transcriptFile = args[1];
+                args = Arrays.copyOfRange(args, 2, args.length);
+                continue;
+            }
+            try {
+                seed = Long.parseLong(args[1]);
+            }
+            catch (NumberFormatException e) {
+                System.out.println("Error: invalid value for seed.");
+                System.exit(-1);
+            }
+            args = Arrays.copyOfRange(args, 2, args.length);
         }
-        catch (Exception e) {
-            System.out.println("Error: invalid value for num rounds.");
-            System.exit(-1);
+
+        if (args.length >= 1 && args[0].equals("-roundrobin")) {
+            if (args.length < 4)
+                printUsage();
+            runRoundRobin(parseRounds(args[1]), Arrays.asList(args).subList(2, args.length), seed, timing);
+            return;
         }
-        
+        if (args.length != 3)
+            printUsage();
+
+        // Determine number of rounds to run
+        long numRounds = parseRounds(args[2]);
+
         // Instantiate players
         RoShamBot player1 = null;
         RoShamBot player2 = null;
         try {
-            player1 = (RoShamBot)Class.forName(args[0]).
-                        getDeclaredConstructor().newInstance();
-            player2 = (RoShamBot)Class.forName(args[1]).
-                        getDeclaredConstructor().newInstance();
+            player1 = loadBot(args[0]);
+            player2 = loadBot(args[1]);
         }
         catch (Exception e) {
-            System.out.println("Error: one or more named bots could not be " +
-                               "loaded.");
-            System.out.println("Double check that your bots have been compiled" +
-                               " and that the .class files are in the current" +
-                               " directory.");
-            System.exit(-1);
+            printLoadError();
         }
-        
+
         // Run tournament
-        Arbiter judge = new Arbiter(player1, player2);
-        for (int i = 0; i < numRounds; i++)
-            judge.runRound();
-        
+        Arbiter judge = new Arbiter(player1, player2, new RandomSource(seed));
+        if (timing)
+            judge.enableTiming();
+        MatchResult result = null;
+        if (transcriptFile == null) {
+            result = judge.runRounds(numRounds);
+        }
+        else {
+            try (TranscriptWriter transcript =
+                     new TranscriptWriter(Paths.get(transcriptFile), args[0], args[1], seed)) {
+                judge.setTranscript(transcript);
+                result = judge.runRounds(numRounds);
+            }
+            catch (IOException | UncheckedIOException e) {
+                System.out.println("Error: could not write transcript: " + e.getMessage());
+                System.exit(-1);
+            }
+        }
+
         // Print scores
-        int[] scores = judge.getCurrentScore();
-        System.out.println(args[0] + ": " + scores[0]);
-        System.out.println("Ties: " + scores[1]);
-        System.out.println(args[1] + ": " + scores[2]);
+        System.out.println(args[0] + ": " + result.getWins());
+        System.out.println("Ties: " + result.getTies());
+        System.out.println(args[1] + ": " + result.getLosses());
+        System.out.printf("Elapsed: %.3f s (%.0f rounds/s)%n",
+                          result.getElapsedNanos() / 1e9, result.getRoundsPerSecond());
+        System.out.println("Seed: " + seed);
+
+        if (timing) {
+            printLatencyHeader();
+            printLatency(args[0], judge.getPlayer1Latency());
+            printLatency(args[1], judge.getPlayer2Latency());
+        }
+        closeBot(player1);
+        closeBot(player2);
+    }
+
+    /** Instantiates a bot from its class name.
+      *
+      * @param className the class name of the bot.
+      * @return a new instance of the bot.
+      * @throws ReflectiveOperationException if the bot could not be created.
+      */
+    public static RoShamBot loadBot(String className) throws ReflectiveOperationException {
+        return (RoShamBot)Class.forName(className).getDeclaredConstructor().newInstance();
     }
-    
-}
\ No newline at end of file
+
+    /** Releases whatever a bot holds open (e.g. the transcript of a
+      * {@link ReplayBot}) once its match is over. Does nothing for bots that
+      * are not {@link AutoCloseable}, or for null.
+      *
+      * @param bot the bot to close.
+      */
+    public static void closeBot(RoShamBot bot) {
+        if (bot instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable)bot).close();
+            }
+            catch (Exception e) {
+                throw new IllegalStateException("could not close bot", e);
+            }
+        }
+    }
+
+    /** Plays every pairing of the named bots in parallel and prints a
+      * leaderboard.
+      */
+    private static void runRoundRobin(long numRounds, List<String> botNames, long seed, boolean timing) {
+        // Fail fast on bad names rather than inside a pool thread
+        try {
+            for (String name : botNames)
+                closeBot(loadBot(name));
+        }
+        catch (Exception e) {
+            printLoadError();
+        }
+
+        long start = System.nanoTime();
+        List<RoundRobin.Standing> standings =
+            new RoundRobin(botNames, numRounds, seed, timing).run(ForkJoinPool.commonPool());
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%-4s %-20s %6s %3s %3s %3s %14s %14s %14s%n",
+                          "Rank", "Bot", "Points", "W", "T", "L",
+                          "Rounds won", "Rounds tied", "Rounds lost");
+        int rank = 1;
+        for (RoundRobin.Standing s : standings) {
+            System.out.printf("%-4d %-20s %6d %3d %3d %3d %14d %14d %14d%n",
+                              rank++, s.getName(), s.getPoints(),
+                              s.getMatchWins(), s.getMatchTies(), s.getMatchLosses(),
+                              s.getRoundWins(), s.getRoundTies(), s.getRoundLosses());
+        }
+        System.out.printf("Elapsed: %.3f s%n", elapsed / 1e9);
+        System.out.println("Seed: " + seed);
+
+        if (timing) {
+            printLatencyHeader();
+            for (RoundRobin.Standing s : standings)
+                printLatency(s.getName(), s.getLatency());
+        }
+    }
+
+    private static void printLatencyHeader() {
+        System.out.println();
+        System.out.println("getNextMove latency (ns):");
+        System.out.printf("%-20s %14s %10s %10s %10s %12s%n",
+                          "Bot", "Calls", "p50", "p90", "p99", "max");
+    }
+
+    private static void printLatency(String name, LatencyHistogram latency) {
+        System.out.printf("%-20s %14d %10d %10d %10d %12d%n",
+                          name, latency.getCount(),
+                          latency.getValueAtPercentile(50), latency.getValueAtPercentile(90),
+                          latency.getValueAtPercentile(99), latency.getMax());
+    }
+
+    private static long parseRounds(String arg) {
+        long numRounds = 0;
+        try {
+            numRounds = Long.parseLong(arg);
+            if (numRounds < 0)
+                throw new NumberFormatException();
+        }
+        catch (Exception e) {
+            System.out.println("Error: invalid value for num rounds.");
+            System.exit(-1);
+        }
+        return numRounds;
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: java Tournament [-seed <s>] [-timing] [-transcript <file>] <player1> <player2> <n>");
+        System.out.println("   or: java Tournament [-seed <s>] [-timing] -roundrobin <n> <player1> <player2> [<player3> ...]");
+        System.out.println("where <player1> = class name of first bot.");
+        System.out.println("      <player2> = class name of second bot.");
+        System.out.println("      <n>       = number of rounds to play (per match).");
+        System.out.println("      <s>       = seed for a reproducible run (default: time-based).");
+        System.out.println("      -timing   = report per-bot getNextMove latency percentiles.");
+        System.out.println("      <file>    = file to record every round of the match to.");
+        System.out.println("Example:");
+        System.out.println("java Tournament NashBot MixedBot 10000");
+        System.out.println("java Tournament -roundrobin 10000 NashBot MixedBot ApeBot");
+        System.exit(-1);
+    }
+
+    private static void printLoadError() {
+        System.out.println("Error: one or more named bots could not be " +
+                           "loaded.");
+        System.out.println("Double check that your bots have been compiled" +
+                           " and that the .class files are in the current" +
+                           " directory.");
+        System.exit(-1);
+    }
+
+}
@@ -0,0 +1,63 @@
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/** Binary format of a match transcript.
+  *
+  * A transcript is a header followed by one byte per round:
+  * <pre>
+  *   int   magic ("RPSL")
+  *   int   format version
+  *   long  seed of the match
+  *   long  number of rounds
+  *   short length of player 1's name, followed by the UTF-8 name
+  *   short length of player 2's name, followed by the UTF-8 name
+  *   byte  round 1, byte round 2, ...
+  * </pre>
+  * Each round byte holds player 1's action in bits 3-5 and player 2's action
+  * in bits 0-2, as {@link Action#ordinal()} values. All numbers are
+  * big-endian.
+  */
+public final class Transcript {
+
+    public static final int MAGIC = 0x5250534C;
+    public static final int VERSION = 1;
+
+    static final int ROUNDS_OFFSET = 16;
+    static final int FIXED_HEADER_SIZE = 24;
+
+    private static final Action[] ACTIONS = Action.values();
+
+    private Transcript() {
+    }
+
+    /** Packs the actions of one round into a single byte. */
+    public static byte encode(Action player1Move, Action player2Move) {
+        return (byte) ((player1Move.ordinal() << 3) | player2Move.ordinal());
+    }
+
+    /** Returns player 1's action from a packed round. */
+    public static Action player1Move(int round) {
+        return ACTIONS[(round >>> 3) & 7];
+    }
+
+    /** Returns player 2's action from a packed round. */
+    public static Action player2Move(int round) {
+        return ACTIONS[round & 7];
+    }
+
+    /** Builds a complete header, ready to be written at the start of a file. */
+    static ByteBuffer encodeHeader(String player1, String player2, long seed, long rounds) {
+        byte[] name1 = player1.getBytes(StandardCharsets.UTF_8);
+        byte[] name2 = player2.getBytes(StandardCharsets.UTF_8);
+        if (name1.length > Short.MAX_VALUE || name2.length > Short.MAX_VALUE)
+            throw new IllegalArgumentException("bot name too long");
+
+        ByteBuffer header = ByteBuffer.allocate(FIXED_HEADER_SIZE + 4 + name1.length + name2.length);
+        header.putInt(MAGIC).putInt(VERSION).putLong(seed).putLong(rounds);
+        header.putShort((short) name1.length).put(name1);
+        header.putShort((short) name2.length).put(name2);
+        header.flip();
+        return header;
+    }
+}
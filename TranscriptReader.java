@@ -0,0 +1,144 @@
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+
+/** Streams the rounds of a {@link Transcript} file.
+  *
+  * The file is mapped one region at a time as the rounds are consumed, so
+  * transcripts of any length can be read with constant memory and without a
+  * system call per round.
+  */
+public final class TranscriptReader implements AutoCloseable {
+
+    private static final long CHUNK_SIZE = 1L << 26; // bytes mapped at a time
+
+    private final FileChannel channel;
+    private final String player1;
+    private final String player2;
+    private final long seed;
+    private final long rounds;
+    private final long bodyStart;
+    private MappedByteBuffer chunk;
+    private long chunkStart;
+    private long position;
+
+    /** Opens a transcript and reads its header.
+      *
+      * @param path the file to read.
+      * @throws IOException if the file cannot be read or is not a transcript.
+      */
+    public TranscriptReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer fixed = readFully(0, Transcript.FIXED_HEADER_SIZE + 2);
+            if (fixed.getInt() != Transcript.MAGIC)
+                throw new IOException("not a transcript: " + path);
+            int version = fixed.getInt();
+            if (version != Transcript.VERSION)
+                throw new IOException("unsupported transcript version " + version + ": " + path);
+            this.seed = fixed.getLong();
+            this.rounds = fixed.getLong();
+
+            long offset = Transcript.FIXED_HEADER_SIZE;
+            int length1 = fixed.getShort();
+            ByteBuffer name1 = readFully(offset + 2, length1 + 2);
+            this.player1 = decodeName(name1, length1);
+            offset += 2 + length1;
+            int length2 = name1.getShort();
+            this.player2 = decodeName(readFully(offset + 2, length2), length2);
+            this.bodyStart = offset + 2 + length2;
+        }
+        catch (IOException e) {
+            this.channel.close();
+            throw e;
+        }
+        if (this.channel.size() < this.bodyStart + this.rounds) {
+            this.channel.close();
+            throw new IOException("truncated transcript: " + path);
+        }
+        this.chunkStart = this.bodyStart;
+    }
+
+    private ByteBuffer readFully(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (this.channel.read(buffer, offset + buffer.position()) < 0)
+                throw new IOException("truncated transcript header");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static String decodeName(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Returns the name of the first bot. */
+    public String getPlayer1() {
+        return this.player1;
+    }
+
+    /** Returns the name of the second bot. */
+    public String getPlayer2() {
+        return this.player2;
+    }
+
+    /** Returns the seed of the recorded match. */
+    public long getSeed() {
+        return this.seed;
+    }
+
+    /** Returns the number of rounds in the transcript. */
+    public long getRounds() {
+        return this.rounds;
+    }
+
+    /** Returns true if there are rounds left to read. */
+    public boolean hasNext() {
+        return this.position < this.rounds;
+    }
+
+    /** Returns the next round, packed as described in {@link Transcript}.
+      *
+      * @throws NoSuchElementException if all rounds have been read.
+      * @throws IOException if the next region of the file cannot be mapped.
+      */
+    public int next() throws IOException {
+        if (this.position >= this.rounds)
+            throw new NoSuchElementException();
+        if (this.chunk == null || !this.chunk.hasRemaining()) {
+            if (this.chunk != null)
+                this.chunkStart += this.chunk.capacity();
+            long size = Math.min(CHUNK_SIZE, this.bodyStart + this.rounds - this.chunkStart);
+            this.chunk = this.channel.map(FileChannel.MapMode.READ_ONLY, this.chunkStart, size);
+        }
+        this.position++;
+        return this.chunk.get();
+    }
+
+    /** Restarts reading from the first round. */
+    public void rewind() {
+        // A transcript that fits in one region keeps its mapping, so looping
+        // over a short recording does not map the file again on every pass
+        if (this.chunk != null && this.chunkStart == this.bodyStart)
+            this.chunk.rewind();
+        else
+            this.chunk = null;
+        this.chunkStart = this.bodyStart;
+        this.position = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.chunk = null;
+        this.channel.close();
+    }
+}
@@ -0,0 +1,83 @@
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** Records the moves of a match to a {@link Transcript} file.
+  *
+  * Rounds are written through memory-mapped regions of the file, one after
+  * another, so recording a round is a single byte store with no system call;
+  * the operating system writes the pages back sequentially. The round count
+  * in the header is only filled in by {@link #close()}.
+  */
+public final class TranscriptWriter implements AutoCloseable {
+
+    private static final long CHUNK_SIZE = 1L << 26; // bytes mapped at a time
+
+    private final FileChannel channel;
+    private final long bodyStart;
+    private MappedByteBuffer chunk;
+    private long chunkStart;
+    private long rounds;
+
+    /** Creates (or overwrites) a transcript file.
+      *
+      * @param path the file to write.
+      * @param player1 the name of the first bot.
+      * @param player2 the name of the second bot.
+      * @param seed the seed of the match.
+      * @throws IOException if the file cannot be created.
+      */
+    public TranscriptWriter(Path path, String player1, String player2, long seed) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = Transcript.encodeHeader(player1, player2, seed, 0);
+        this.bodyStart = header.remaining();
+        this.channel.write(header, 0);
+        this.chunkStart = this.bodyStart;
+        this.chunk = this.channel.map(FileChannel.MapMode.READ_WRITE, this.chunkStart, CHUNK_SIZE);
+    }
+
+    /** Appends one round to the transcript.
+      *
+      * @throws UncheckedIOException if the next region of the file cannot be
+      *         mapped.
+      */
+    public void record(Action player1Move, Action player2Move) {
+        if (!this.chunk.hasRemaining())
+            nextChunk();
+        this.chunk.put(Transcript.encode(player1Move, player2Move));
+        this.rounds++;
+    }
+
+    /** Returns the number of rounds recorded so far. */
+    public long getRounds() {
+        return this.rounds;
+    }
+
+    private void nextChunk() {
+        this.chunkStart += this.chunk.capacity();
+        try {
+            this.chunk = this.channel.map(FileChannel.MapMode.READ_WRITE, this.chunkStart, CHUNK_SIZE);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Writes the round count, trims the unused tail of the last mapped
+      * region and closes the file.
+      */
+    @Override
+    public void close() throws IOException {
+        this.chunk = null;
+        this.channel.truncate(this.bodyStart + this.rounds);
+        ByteBuffer count = ByteBuffer.allocate(8).putLong(0, this.rounds);
+        this.channel.write(count, Transcript.ROUNDS_OFFSET);
+        this.channel.close();
+    }
+}